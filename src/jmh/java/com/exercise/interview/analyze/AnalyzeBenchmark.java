@@ -0,0 +1,98 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the service and the repository, run by {@link SingleThreaded} on one thread
+ * and by {@link Contended} on as many threads as processors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=2g"})
+public abstract class AnalyzeBenchmark {
+    private static final int TOP_K = 100;
+
+    @Benchmark
+    public AnalyzeResponse analyzeKnownText(CorpusState corpus) {
+        return corpus.service.analyze(corpus.knownText(corpus.nextQuery())).blockingGet();
+    }
+
+    @Benchmark
+    public AnalyzeResponse analyzeNewText(CorpusState corpus) {
+        return corpus.service.analyze(corpus.newText()).blockingGet();
+    }
+
+    @Benchmark
+    public AnalyzeTopResponse analyzeTopKnownText(CorpusState corpus) {
+        return corpus.service.analyzeTop(corpus.knownText(corpus.nextQuery()).getText(), TOP_K).blockingGet();
+    }
+
+    @Benchmark
+    public String closestLexical(CorpusState corpus) {
+        int query = corpus.nextQuery();
+        return AnalyzeServiceImpl.closestLexical(corpus.query(query).getText(), corpus.neighbours(query)).blockingGet();
+    }
+
+    @Benchmark
+    public String closestValue(CorpusState corpus) {
+        return corpus.service.closestValue(corpus.query(corpus.nextQuery()).getCharValue()).blockingGet();
+    }
+
+    @Benchmark
+    public int charValue(CorpusState corpus) {
+        return AnalyzeServiceImpl.charValue(corpus.query(corpus.nextQuery()).getText());
+    }
+
+    @Benchmark
+    public LexicalNeighbours repositoryLexicalNeighbours(CorpusState corpus) {
+        return corpus.repository.getLexicalNeighbours(corpus.query(corpus.nextQuery()).getText()).blockingGet();
+    }
+
+    @Benchmark
+    public Integer repositoryClosestValue(CorpusState corpus) {
+        return corpus.repository.getClosestValue(corpus.query(corpus.nextQuery()).getCharValue()).blockingGet();
+    }
+
+    @Benchmark
+    public List<String> repositoryTextsWithValue(CorpusState corpus) {
+        return corpus.repository.getTextsWithValue(corpus.knownText(corpus.nextQuery()).getCharValue(), 1)
+                .blockingGet();
+    }
+
+    @Benchmark
+    public List<TextCache> repositoryClosestByValue(CorpusState corpus) {
+        return corpus.repository.getClosestByValue(corpus.query(corpus.nextQuery()).getCharValue(), TOP_K)
+                .blockingGet();
+    }
+
+    @Benchmark
+    public LexicalWindow repositoryLexicalWindow(CorpusState corpus) {
+        return corpus.repository.getLexicalWindow(corpus.query(corpus.nextQuery()).getText(), TOP_K).blockingGet();
+    }
+
+    @Benchmark
+    public Future<Void> repositorySaveText(CorpusState corpus) {
+        return corpus.repository.saveText(corpus.newText());
+    }
+
+    @Threads(1)
+    public static class SingleThreaded extends AnalyzeBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    public static class Contended extends AnalyzeBenchmark {
+    }
+}
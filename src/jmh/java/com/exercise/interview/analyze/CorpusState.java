@@ -0,0 +1,139 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repository and service over a cache of random texts, with no database behind them.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final int QUERIES = 1 << 16;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int corpusSize;
+
+    @Param({"heap", "trie", "arena", "tiered"})
+    String storage;
+
+    Vertx vertx;
+    TextRepository repository;
+    AnalyzeServiceImpl service;
+
+    private TextCache[] knownTexts;
+    private TextCache[] queries;
+    private LexicalNeighbours[] neighbours;
+    private final AtomicLong newTexts = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vertx = Vertx.vertx();
+
+        TextIndex textIndex = createTextIndex();
+        Random random = new Random(42);
+        knownTexts = new TextCache[QUERIES];
+        for (int i = 0; i < corpusSize; i++) {
+            TextCache text = randomText(random);
+            textIndex.add(text);
+            knownTexts[i % QUERIES] = text;
+        }
+
+        queries = new TextCache[QUERIES];
+        neighbours = new LexicalNeighbours[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = randomText(random);
+            neighbours[i] = textIndex.lexicalNeighbours(queries[i].getText());
+        }
+
+        BatchTextWriter textWriter = new BatchTextWriter(vertx, StubSqlClient.create(),
+                WriteBehindOptions.of(500, 50, 10000));
+        repository = new TextRepositoryImpl(new PgTextStore(null, textWriter, WarmUpOptions.of(1000, 100000), 0),
+                new TextSnapshot(vertx, null), textIndex);
+        service = new AnalyzeServiceImpl(repository, new AnalyzeMetrics(new SimpleMeterRegistry()),
+                LookupExecution.inline());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close()
+                .flatMap(v -> vertx.close())
+                .toCompletionStage()
+                .toCompletableFuture()
+                .join();
+    }
+
+    int nextQuery() {
+        return ThreadLocalRandom.current().nextInt(QUERIES);
+    }
+
+    TextCache knownText(int query) {
+        return knownTexts[query % Math.min(corpusSize, QUERIES)];
+    }
+
+    TextCache query(int query) {
+        return queries[query];
+    }
+
+    LexicalNeighbours neighbours(int query) {
+        return neighbours[query];
+    }
+
+    /**
+     * Text never cached before, spelling a counter in letters.
+     */
+    TextCache newText() {
+        StringBuilder text = new StringBuilder("new");
+        for (long n = newTexts.incrementAndGet(); n > 0; n /= 26) {
+            text.append((char) ('a' + n % 26));
+        }
+        return TextCache.of(text.toString(), AnalyzeServiceImpl.charValue(text.toString()));
+    }
+
+    private TextIndex createTextIndex() {
+        switch (storage) {
+            case "heap":
+                return new HeapTextIndex();
+            case "trie":
+                return new HeapTextIndex(new RadixTrieLexicalIndex());
+            case "arena":
+                return new ArenaTextIndex(1L << 30);
+            case "tiered":
+                return new TieredTextIndex(tierDirectory(), HeapTextIndex::new, 64L * 1024 * 1024, 8);
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+    }
+
+    private static Path tierDirectory() {
+        try {
+            return Files.createTempDirectory("analyze-tiers");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TextCache randomText(Random random) {
+        char[] chars = new char[3 + random.nextInt(10)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+
+        String text = new String(chars);
+        return TextCache.of(text, AnalyzeServiceImpl.charValue(text));
+    }
+}
@@ -0,0 +1,28 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.SqlClient;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * {@link SqlClient} whose prepared queries succeed at once without a database, for the write path benchmarks.
+ */
+final class StubSqlClient {
+    private StubSqlClient() {
+    }
+
+    static SqlClient create() {
+        PreparedQuery<?> preparedQuery = proxy(PreparedQuery.class, "execute", Future.succeededFuture());
+        return proxy(SqlClient.class, "preparedQuery", preparedQuery);
+    }
+
+    private static <T> T proxy(Class<T> type, String method, Object result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, m, args) -> {
+            if (m.getName().equals(method)) return result;
+            if (m.getName().equals("close")) return Future.succeededFuture();
+            throw new UnsupportedOperationException(m.getName());
+        }));
+    }
+}
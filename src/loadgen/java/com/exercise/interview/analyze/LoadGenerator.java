@@ -0,0 +1,193 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends random texts to {@code /analyze} and reports the latency percentiles. A {@code tcp://host:port} url sends
+ * them to the TCP endpoint instead, each connection pipelining the requests of the open loop.
+ * <p>
+ * The open loop sends at a constant rate whatever the responses, measuring each latency from the time the request
+ * was due, so stalls of the server are not hidden by requests that were never sent. The closed loop keeps each
+ * connection busy with one request at a time, paced by the rate when there is one, in which case the latencies are
+ * corrected for the requests a stall delayed.
+ */
+public class LoadGenerator {
+    private final Vertx vertx;
+    private final LoadGeneratorOptions options;
+    private final WebClient client;
+    private final TextGenerator texts;
+    private final List<BinaryAnalyzeClient> binaryClients = new ArrayList<>();
+    private final Histogram latency = new Histogram(3);
+    private final Histogram serviceTime = new Histogram(3);
+    private final Promise<Void> finished = Promise.promise();
+
+    private long warmupEnd;
+    private long end;
+    private long inFlight;
+    private long completed;
+    private long errors;
+    private int activeLoops;
+    private int nextClient;
+
+    public LoadGenerator(Vertx vertx, LoadGeneratorOptions options) {
+        this.vertx = vertx;
+        this.options = options;
+        this.client = WebClient.create(vertx, new WebClientOptions()
+                .setMaxPoolSize(options.getConnections())
+                .setKeepAlive(true));
+        this.texts = new TextGenerator(options);
+    }
+
+    public static void main(String[] args) {
+        LoadGeneratorOptions options = LoadGeneratorOptions.parse(args);
+        Vertx vertx = Vertx.vertx();
+        LoadGenerator generator = new LoadGenerator(vertx, options);
+
+        Promise<Void> done = Promise.promise();
+        vertx.runOnContext(v -> generator.run().onComplete(done));
+        try {
+            done.future().toCompletionStage().toCompletableFuture().join();
+            generator.report(System.out);
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().join();
+        }
+    }
+
+    /**
+     * Runs the load on the current context, so the histograms are only touched by its thread.
+     */
+    public Future<Void> run() {
+        return connectBinaryClients().flatMap(v -> startLoops());
+    }
+
+    private Future<Void> connectBinaryClients() {
+        if (!options.isBinary()) return Future.succeededFuture();
+
+        URI uri = URI.create(options.getUrl());
+        List<Future<BinaryAnalyzeClient>> connections = new ArrayList<>();
+        for (int i = 0; i < options.getConnections(); i++) {
+            connections.add(BinaryAnalyzeClient.connect(vertx, uri.getHost(), uri.getPort())
+                    .onSuccess(binaryClients::add));
+        }
+        return Future.all(connections).mapEmpty();
+    }
+
+    private Future<Void> startLoops() {
+        long start = System.nanoTime();
+        warmupEnd = start + TimeUnit.SECONDS.toNanos(options.getWarmup());
+        end = warmupEnd + TimeUnit.SECONDS.toNanos(options.getDuration());
+
+        activeLoops = options.isOpenLoop() ? 1 : options.getConnections();
+        if (options.isOpenLoop()) runOpenLoop(start);
+        else for (int i = 0; i < activeLoops; i++) runClosedLoop(start);
+
+        return finished.future();
+    }
+
+    private void runOpenLoop(long start) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long[] next = {start};
+
+        vertx.setPeriodic(1, id -> {
+            long now = System.nanoTime();
+            while (next[0] <= now && next[0] < end) {
+                send(next[0], 0);
+                next[0] += interval;
+            }
+
+            if (next[0] >= end) {
+                vertx.cancelTimer(id);
+                stopSending();
+            }
+        });
+    }
+
+    private void runClosedLoop(long intended) {
+        long now = System.nanoTime();
+        if (now >= end) {
+            stopSending();
+            return;
+        }
+
+        long interval = options.getRate() > 0 ?
+                TimeUnit.SECONDS.toNanos(options.getConnections()) / options.getRate() : 0;
+        if (intended > now) {
+            vertx.setTimer(Math.max(1, TimeUnit.NANOSECONDS.toMillis(intended - now)), id -> runClosedLoop(intended));
+            return;
+        }
+
+        send(now, interval).onComplete(r -> runClosedLoop(Math.max(intended + interval, System.nanoTime())));
+    }
+
+    private Future<Void> send(long intended, long expectedInterval) {
+        long sent = System.nanoTime();
+        inFlight++;
+
+        return request(texts.next())
+                .transform(r -> {
+                    long now = System.nanoTime();
+                    inFlight--;
+                    if (intended >= warmupEnd) {
+                        latency.recordValueWithExpectedInterval(TimeUnit.NANOSECONDS.toMicros(now - intended),
+                                TimeUnit.NANOSECONDS.toMicros(expectedInterval));
+                        serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sent));
+                        completed++;
+                        if (r.failed()) errors++;
+                    }
+
+                    finishWhenIdle();
+                    return Future.<Void>succeededFuture();
+                });
+    }
+
+    private Future<Void> request(String text) {
+        if (options.isBinary()) {
+            BinaryAnalyzeClient binaryClient = binaryClients.get(nextClient++ % binaryClients.size());
+            return binaryClient.analyze(text).mapEmpty();
+        }
+
+        return client.postAbs(options.getUrl())
+                .putHeader(HttpHeaders.CONTENT_TYPE.toString(), "application/json")
+                .sendBuffer(new JsonObject().put("text", text).toBuffer())
+                .flatMap(r -> r.statusCode() == 200 ?
+                        Future.<Void>succeededFuture() : Future.failedFuture("Status " + r.statusCode()));
+    }
+
+    private void stopSending() {
+        activeLoops--;
+        finishWhenIdle();
+    }
+
+    private void finishWhenIdle() {
+        if (activeLoops == 0 && inFlight == 0) finished.tryComplete();
+    }
+
+    public void report(PrintStream out) {
+        double seconds = options.getDuration();
+        out.printf("Mode: %s loop, rate %s, %d connections, %d s after %d s of warm-up%n",
+                options.getMode(), options.getRate() > 0 ? options.getRate() + "/s" : "unbounded",
+                options.getConnections(), options.getDuration(), options.getWarmup());
+        out.printf("Requests: %d, errors: %d, throughput: %.1f/s%n", completed, errors, completed / seconds);
+
+        out.println();
+        out.println("Latency in ms, from the intended send time:");
+        latency.outputPercentileDistribution(out, 1000.0);
+
+        out.println();
+        out.println("Service time in ms, from the actual send time:");
+        serviceTime.outputPercentileDistribution(out, 1000.0);
+    }
+}
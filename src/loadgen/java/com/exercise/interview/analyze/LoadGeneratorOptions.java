@@ -0,0 +1,66 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Value(staticConstructor = "of")
+public class LoadGeneratorOptions {
+    String url;
+    String mode;
+    int rate;
+    int connections;
+    int warmup;
+    int duration;
+    int minLength;
+    int maxLength;
+    String alphabet;
+    double duplicateRatio;
+    long seed;
+
+    public boolean isOpenLoop() {
+        return "open".equals(mode);
+    }
+
+    public boolean isBinary() {
+        return url.startsWith("tcp://");
+    }
+
+    /**
+     * Reads options given as {@code --name=value}, every option having a default.
+     */
+    public static LoadGeneratorOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) throw new IllegalArgumentException("Invalid option: " + arg);
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadGeneratorOptions options = of(
+                values.getOrDefault("url", "http://localhost:8888/analyze"),
+                values.getOrDefault("mode", "closed"),
+                Integer.parseInt(values.getOrDefault("rate", "0")),
+                Integer.parseInt(values.getOrDefault("connections", "10")),
+                Integer.parseInt(values.getOrDefault("warmup", "5")),
+                Integer.parseInt(values.getOrDefault("duration", "30")),
+                Integer.parseInt(values.getOrDefault("min-length", "50")),
+                Integer.parseInt(values.getOrDefault("max-length", "50")),
+                values.getOrDefault("alphabet", "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"),
+                Double.parseDouble(values.getOrDefault("duplicate-ratio", "0")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+
+        if (!options.isOpenLoop() && !"closed".equals(options.mode)) {
+            throw new IllegalArgumentException("Unknown mode: " + options.mode);
+        }
+        if (options.isOpenLoop() && options.rate <= 0) throw new IllegalArgumentException("Open loop needs a rate");
+        if (options.minLength < 1 || options.maxLength < options.minLength) {
+            throw new IllegalArgumentException("Invalid text length: " + options.minLength + ".." + options.maxLength);
+        }
+        if (options.duplicateRatio < 0 || options.duplicateRatio > 1) {
+            throw new IllegalArgumentException("Duplicate ratio out of [0, 1]: " + options.duplicateRatio);
+        }
+        return options;
+    }
+}
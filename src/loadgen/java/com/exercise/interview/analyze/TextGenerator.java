@@ -0,0 +1,38 @@
+package com.exercise.interview.analyze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random texts, a share of them repeating texts generated before.
+ */
+public class TextGenerator {
+    private static final int MAX_REMEMBERED = 100_000;
+
+    private final LoadGeneratorOptions options;
+    private final Random random;
+    private final List<String> generated = new ArrayList<>();
+
+    public TextGenerator(LoadGeneratorOptions options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+    }
+
+    public String next() {
+        if (!generated.isEmpty() && random.nextDouble() < options.getDuplicateRatio()) {
+            return generated.get(random.nextInt(generated.size()));
+        }
+
+        String alphabet = options.getAlphabet();
+        char[] chars = new char[options.getMinLength() + random.nextInt(options.getMaxLength() - options.getMinLength() + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+
+        String text = new String(chars);
+        if (generated.size() < MAX_REMEMBERED) generated.add(text);
+        else generated.set(random.nextInt(MAX_REMEMBERED), text);
+        return text;
+    }
+}
@@ -0,0 +1,47 @@
+package com.exercise.interview.analyze;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Budget of the analyze requests handled at once and of the texts waiting to be persisted, so work beyond
+ * them is refused up front instead of queued. A limit of 0 disables it.
+ */
+public class AdmissionControl {
+    private final int maxInFlight;
+    private final int maxQueuedWrites;
+    private final IntSupplier queuedWrites;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AdmissionControl(int maxInFlight, int maxQueuedWrites, IntSupplier queuedWrites) {
+        this.maxInFlight = maxInFlight;
+        this.maxQueuedWrites = maxQueuedWrites;
+        this.queuedWrites = queuedWrites;
+    }
+
+    public static AdmissionControl unbounded() {
+        return new AdmissionControl(0, 0, () -> 0);
+    }
+
+    /**
+     * Takes a slot for a request, to be given back with {@link #release()} once it is answered.
+     */
+    public void acquire() {
+        if (maxQueuedWrites > 0 && queuedWrites.getAsInt() >= maxQueuedWrites) {
+            throw new OverloadedException("write_queue", "Too many texts waiting to be saved");
+        }
+
+        if (inFlight.incrementAndGet() > maxInFlight && maxInFlight > 0) {
+            inFlight.decrementAndGet();
+            throw new OverloadedException("in_flight", "Too many requests in flight");
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
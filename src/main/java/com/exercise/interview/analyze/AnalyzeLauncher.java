@@ -0,0 +1,23 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Launcher;
+import io.vertx.core.VertxOptions;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.VertxPrometheusOptions;
+
+/**
+ * Launcher enabling the Vert.x metrics, so HTTP, pool and event bus meters are scraped along the analysis ones.
+ */
+public class AnalyzeLauncher extends Launcher {
+    public static void main(String[] args) {
+        new AnalyzeLauncher().dispatch(args);
+    }
+
+    @Override
+    public void beforeStartingVertx(VertxOptions options) {
+        options.setMetricsOptions(new MicrometerMetricsOptions()
+                .setPrometheusOptions(new VertxPrometheusOptions().setEnabled(true))
+                .setJvmMetricsEnabled(true)
+                .setEnabled(true));
+    }
+}
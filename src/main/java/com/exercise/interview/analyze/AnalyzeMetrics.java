@@ -0,0 +1,100 @@
+package com.exercise.interview.analyze;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.Future;
+
+import java.util.function.Supplier;
+
+/**
+ * Latency of each stage of an analysis and gauges of the caches and queues behind it,
+ * scraped in the Prometheus text format.
+ */
+public class AnalyzeMetrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MeterRegistry registry;
+
+    public AnalyzeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stop(String stage, Timer.Sample sample) {
+        sample.stop(Timer.builder("analyze.stage")
+                .description("Latency of a stage of the analysis")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public <T> Single<T> time(String stage, Single<T> source) {
+        return Single.defer(() -> {
+            Timer.Sample sample = start();
+            return source.doFinally(() -> stop(stage, sample));
+        });
+    }
+
+    public <T> Maybe<T> time(String stage, Maybe<T> source) {
+        return Maybe.defer(() -> {
+            Timer.Sample sample = start();
+            return source.doFinally(() -> stop(stage, sample));
+        });
+    }
+
+    public Future<Void> timeSave(Supplier<Future<Void>> save) {
+        Timer.Sample sample = start();
+        return save.get()
+                .onComplete(r -> sample.stop(Timer.builder("analyze.save")
+                        .description("Latency of saving texts, by outcome")
+                        .tag("outcome", r.succeeded() ? "success" : "failure")
+                        .publishPercentileHistogram()
+                        .register(registry)));
+    }
+
+    public Counter counter(String name, String description, Tags tags) {
+        return Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public void counter(String name, String description, Tags tags, Supplier<Number> count) {
+        FunctionCounter.builder(name, count, c -> c.get().doubleValue())
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public void shed(OverloadedException e) {
+        counter("analyze.shed", "Requests refused for being over a budget, by reason", Tags.of("reason", e.getReason()))
+                .increment();
+    }
+
+    public void monitor(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public void gauge(String name, String description, Tags tags, Supplier<Number> value) {
+        Gauge.builder(name, value)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public String scrape() {
+        return registry instanceof PrometheusMeterRegistry ? ((PrometheusMeterRegistry) registry).scrape() : "";
+    }
+}
@@ -0,0 +1,69 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single pass parser for the common {@code {"text":"letters"}} body, validating and scoring the text while it is
+ * scanned. Anything it does not fully understand, such as escapes, non ASCII text or extra properties, returns
+ * {@code null} so the caller falls back to a regular JSON parser, which keeps the responses to odd bodies unchanged.
+ */
+public final class AnalyzeRequestParser {
+    private static final byte[] TEXT_KEY = "\"text\"".getBytes(StandardCharsets.US_ASCII);
+
+    private AnalyzeRequestParser() {}
+
+    public static TextCache parse(Buffer body) {
+        int length = body.length();
+
+        int i = skipWhitespace(body, 0, length);
+        if (i >= length || body.getByte(i) != '{') return null;
+
+        i = skipWhitespace(body, i + 1, length);
+        if (i + TEXT_KEY.length > length) return null;
+        for (byte b : TEXT_KEY) {
+            if (body.getByte(i++) != b) return null;
+        }
+
+        i = skipWhitespace(body, i, length);
+        if (i >= length || body.getByte(i) != ':') return null;
+
+        i = skipWhitespace(body, i + 1, length);
+        if (i >= length || body.getByte(i) != '"') return null;
+
+        int start = ++i;
+        int charValue = 0;
+        int invalid = -1;
+        for (; i < length; i++) {
+            byte b = body.getByte(i);
+            if (b == '"') break;
+            if (b < 0x20 || b == '\\') return null;
+
+            int letter = (b | 0x20) - 'a';
+            if (letter >= 0 && letter < 26) charValue += letter + 1;
+            else if (invalid < 0) invalid = i;
+        }
+        int end = i;
+
+        i = skipWhitespace(body, i + 1, length);
+        if (end >= length || i >= length || body.getByte(i) != '}') return null;
+        if (skipWhitespace(body, i + 1, length) != length) return null;
+
+        String text = body.getString(start, end, "US-ASCII");
+        if (invalid >= 0) {
+            throw new InvalidRequestException("Invalid character " + (char) body.getByte(invalid) + " on text: " + text);
+        }
+
+        return TextCache.of(text, charValue);
+    }
+
+    private static int skipWhitespace(Buffer body, int i, int length) {
+        while (i < length) {
+            byte b = body.getByte(i);
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') break;
+            i++;
+        }
+        return i;
+    }
+}
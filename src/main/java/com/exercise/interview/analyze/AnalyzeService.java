@@ -1,7 +1,19 @@
 package com.exercise.interview.analyze;
 
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Single;
 
+import java.util.List;
+
 public interface AnalyzeService {
     Single<AnalyzeResponse> analyze(String text);
+
+    Single<AnalyzeResponse> analyze(TextCache text);
+
+    Flowable<AnalyzeResponse> analyzeBatch(List<String> texts);
+
+    /**
+     * The k closest texts by char value and by lexical distance, the first ones being the ones of {@link #analyze}.
+     */
+    Single<AnalyzeTopResponse> analyzeTop(String text, int k);
 }
@@ -1,123 +1,184 @@
 package com.exercise.interview.analyze;
 
+import io.micrometer.core.instrument.Tags;
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.vertx.core.Future;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @Slf4j
 public class AnalyzeServiceImpl implements AnalyzeService {
     private final TextRepository textRepository;
+    private final AnalyzeMetrics metrics;
+    private final LookupExecution lookupExecution;
+    private final ConcurrentMap<String, Single<AnalyzeResponse>> pendingLookups = new ConcurrentHashMap<>();
 
     @Override
     public Single<AnalyzeResponse> analyze(String text) {
-        int charValue = charValue(text);
-
-        Maybe<String> closestLexical = textRepository.getOrderedText()
-                .flatMapMaybe(l -> closestLexical(text, l));
-
-        Maybe<String> closestValue = textRepository.getOrderedValue()
-                .flatMapMaybe(l -> closestValue(charValue, l));
+        return analyze(TextCache.of(text, charValue(text)));
+    }
 
-        return Maybe.zip(closestValue, closestLexical, AnalyzeResponse::of)
-                .defaultIfEmpty(AnalyzeResponse.of(null, null))
-                .doOnSuccess(r -> {
-                    log.debug("text: {}, response: {}", text, r);
+    @Override
+    public Single<AnalyzeResponse> analyze(TextCache text) {
+        return lookup(text.getText(), text.getCharValue())
+                .doOnSuccess(r -> log.debug("text: {}, response: {}", text.getText(), r))
+                .flatMap(r -> save(metrics, textRepository, text).toSingleDefault(r));
+    }
 
-                    textRepository.saveText(TextCache.of(text, charValue))
-                            .onFailure(t -> log.error("Could not save text: " + text, t));
-                });
+    @Override
+    public Single<AnalyzeTopResponse> analyzeTop(String text, int k) {
+        TextCache textCache = TextCache.of(text, charValue(text));
+
+        Single<List<String>> values = metrics.time("closest_by_value",
+                        textRepository.getClosestByValue(textCache.getCharValue(), k))
+                .map(l -> l.stream().map(TextCache::getText).collect(Collectors.toList()));
+        Single<List<String>> lexicals = metrics.time("lexical_window", textRepository.getLexicalWindow(text, k))
+                .map(w -> closestLexical(text, w, k));
+
+        return lookupExecution.execute(metrics.time("lookup_top", Single.zip(values, lexicals, AnalyzeTopResponse::of)))
+                .doOnSuccess(r -> log.debug("text: {}, top {} response: {}", text, k, r))
+                .flatMap(r -> save(metrics, textRepository, textCache).toSingleDefault(r));
     }
 
-    private static Maybe<String> closestLexical(String text, List<String> texts) {
-        if (texts.isEmpty()) return Maybe.empty();
-        if (texts.size() == 1) return Maybe.just(texts.get(0));
+    /**
+     * Queues the text to be stored without waiting for it, failing only when the store refuses it at once, as when
+     * its write queue is full or the text is too long to store, so the text is not lost after the response.
+     */
+    static Completable save(AnalyzeMetrics metrics, TextRepository textRepository, TextCache text) {
+        return Completable.defer(() -> refused(metrics.timeSave(() -> textRepository.saveText(text))
+                .onFailure(t -> log.error("Could not save text: " + text.getText(), t))));
+    }
 
-        return Maybe.fromCallable(() -> {
-            int start = 0;
-            int end = texts.size() - 1;
+    private static Completable refused(Future<Void> save) {
+        boolean refused = save.failed()
+                && (save.cause() instanceof OverloadedException || save.cause() instanceof InvalidRequestException);
+        return refused ? Completable.error(save.cause()) : Completable.complete();
+    }
 
-            while (start <= end) {
-                int mid = (start + end) / 2;
+    /**
+     * Looks up every text before queuing them, and emits the responses once the store accepted the texts, so a
+     * batch the store refuses fails before its first response.
+     */
+    @Override
+    public Flowable<AnalyzeResponse> analyzeBatch(List<String> texts) {
+        List<TextCache> textCaches = texts.stream()
+                .map(t -> TextCache.of(t, charValue(t)))
+                .collect(Collectors.toList());
+
+        Completable saved = Completable.defer(() -> {
+            log.debug("Analyzed batch of {} texts", textCaches.size());
+
+            return refused(metrics.timeSave(() -> textRepository.saveTexts(textCaches))
+                    .onFailure(t -> log.error("Could not save batch of " + textCaches.size() + " texts", t)));
+        });
+
+        return Flowable.fromIterable(textCaches)
+                .concatMapEager(t -> lookup(t.getText(), t.getCharValue()).toFlowable())
+                .toList()
+                .flatMapPublisher(responses -> saved.andThen(Flowable.fromIterable(responses)));
+    }
 
-                int compare = text.compareToIgnoreCase(texts.get(mid));
-                if (compare == 0) return texts.get(mid);
-                else if (compare < 0) end = mid - 1;
-                else start = mid + 1;
+    /**
+     * Shares the lookup in progress of a text differing only in case, as it has the same response.
+     */
+    private Single<AnalyzeResponse> lookup(String text, int charValue) {
+        return Single.defer(() -> {
+            String key = foldCase(text);
+            Single<AnalyzeResponse> shared = pendingLookups.get(key);
+            if (shared != null) {
+                metrics.counter("analyze.coalesced", "Requests sharing the work of an identical one in progress",
+                        Tags.of("operation", "lookup")).increment();
+                return shared;
             }
 
-            int lhs = Math.max(0, start - 1);
-            int rhs = Math.min(texts.size() - 1, start);
-            int[] lhsDist = calcDist(text, texts.get(lhs));
-            int[] rhsDist = calcDist(text, texts.get(rhs));
-
-            return isCloser(lhsDist, rhsDist) ? texts.get(lhs) : texts.get(rhs);
-        })
-                .subscribeOn(Schedulers.computation());
+            AtomicReference<Single<AnalyzeResponse>> created = new AtomicReference<>();
+            created.set(execute(text, charValue)
+                    .doFinally(() -> pendingLookups.remove(key, created.get()))
+                    .cache());
+            shared = pendingLookups.putIfAbsent(key, created.get());
+            return shared != null ? shared : created.get();
+        });
     }
 
-    private static int[] calcDist(String lhs, String rhs) {
-        int[] result = new int[Math.min(lhs.length(), rhs.length())];
-
-        for (int i = 0; i < result.length; i++) {
-            result[i] = Math.abs(Character.toLowerCase(lhs.charAt(i)) - Character.toLowerCase(rhs.charAt(i)));
-        }
-
-        return result;
-    }
+    private Single<AnalyzeResponse> execute(String text, int charValue) {
+        Maybe<String> closestLexical = metrics.time("neighbours", textRepository.getLexicalNeighbours(text))
+                .flatMapMaybe(n -> metrics.time("lexical", closestLexical(text, n)));
 
-    private static boolean isCloser(int[] lhs, int[] rhs) {
-        int minSize = Math.min(lhs.length, rhs.length);
+        Maybe<String> closestValue = closestValue(charValue);
 
-        for (int i = 0; i < minSize; i++) {
-            if (lhs[i] < rhs[i]) return true;
-            else if (lhs[i] > rhs[i]) return false;
-        }
+        Single<AnalyzeResponse> lookup = metrics.time("lookup",
+                Maybe.zip(closestValue, closestLexical, AnalyzeResponse::of)
+                        .defaultIfEmpty(AnalyzeResponse.of(null, null)));
 
-        return false;
+        return lookupExecution.execute(lookup);
     }
 
-    private Maybe<String> closestValue(int charValue, List<Integer> values) {
-        if (values.isEmpty()) return Maybe.empty();
-
-        return Maybe.fromCallable(() -> {
-            if (values.size() == 1) return values.get(0);
+    static Maybe<String> closestLexical(String text, LexicalNeighbours neighbours) {
+        String floor = neighbours.getFloor();
+        String ceiling = neighbours.getCeiling();
 
-            int start = 0;
-            int end = values.size() - 1;
+        if (floor == null) return Maybe.fromOptional(Optional.ofNullable(ceiling));
+        if (ceiling == null || floor.equalsIgnoreCase(text)) return Maybe.just(floor);
 
-            while (start <= end) {
-                int mid = (start + end) / 2;
+        return Maybe.fromCallable(() -> TextKernel.isCloser(text, floor, ceiling) ? floor : ceiling);
+    }
 
-                if (charValue == values.get(mid)) return values.get(mid);
-                else if (charValue < values.get(mid)) end = mid - 1;
-                else start = mid + 1;
+    /**
+     * Merges the texts below and above the text from the closest, taking the closer of the next two by the rules
+     * of {@link #closestLexical(String, LexicalNeighbours)}, so the first one is the same.
+     */
+    static List<String> closestLexical(String text, LexicalWindow window, int k) {
+        List<String> below = window.getBelow();
+        List<String> above = window.getAbove();
+        List<String> result = new ArrayList<>(Math.min(k, below.size() + above.size()));
+        int i = 0;
+        int j = 0;
+
+        while (result.size() < k && (i < below.size() || j < above.size())) {
+            if (j == above.size()) {
+                result.add(below.get(i++));
+            } else if (i == below.size()) {
+                result.add(above.get(j++));
+            } else {
+                String floor = below.get(i);
+                String ceiling = above.get(j);
+                boolean floorCloser = floor.equalsIgnoreCase(text) || TextKernel.isCloser(text, floor, ceiling);
+                if (floorCloser) i++;
+                else j++;
+                result.add(floorCloser ? floor : ceiling);
             }
+        }
 
-            int lhs = Math.max(0, start - 1);
-            int rhs = Math.min(values.size() - 1, start);
-            return Math.abs(values.get(rhs) - charValue) <= Math.abs(values.get(lhs) - charValue) ?
-                    values.get(rhs) : values.get(lhs);
-        })
-                .subscribeOn(Schedulers.computation())
-                .flatMapSingle(textRepository::getTextsWithValue)
-                .map(l -> l.get(0));
+        return result;
     }
 
-    private static int charValue(String text) {
-        int result = 0;
+    Maybe<String> closestValue(int charValue) {
+        return metrics.time("closest_value", textRepository.getClosestValue(charValue))
+                .flatMapSingle(v -> metrics.time("texts_with_value", textRepository.getTextsWithValue(v, 1)))
+                .map(l -> l.get(0));
+    }
 
-        for (char c : text.toCharArray()) {
-            if (!Character.isLetter(c)) {
-                throw new InvalidRequestException("Invalid character " + c + " on text: " + text);
-            }
-            result += Character.compare(Character.toLowerCase(c), 'a') + 1;
-        }
+    /**
+     * Lower cases each char as the distances and char values do, so texts with the same folded case have the same
+     * response.
+     */
+    static String foldCase(String text) {
+        return TextKernel.foldCase(text);
+    }
 
-        return result;
+    static int charValue(String text) {
+        return TextKernel.charValue(text);
     }
 }
@@ -0,0 +1,11 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value(staticConstructor = "of")
+public class AnalyzeTopResponse {
+    List<String> values;
+    List<String> lexicals;
+}
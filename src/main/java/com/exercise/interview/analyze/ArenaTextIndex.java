@@ -0,0 +1,200 @@
+package com.exercise.interview.analyze;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Index keeping each text once in a {@link TextArena}, while the sorted and by value sets only hold keys with the
+ * arena handles. Texts that do not fit in the arena budget, or are larger than one of its chunks, are kept on the
+ * heap in their keys instead, and counted by {@link #overflowTexts()}.
+ */
+@Slf4j
+public class ArenaTextIndex implements TextIndex {
+    private final long budget;
+    private volatile State state;
+    private final LongAdder overflowTexts = new LongAdder();
+
+    public ArenaTextIndex(long budget) {
+        this.budget = budget;
+        this.state = new State(new TextArena(budget));
+    }
+
+    @Override
+    public synchronized boolean add(TextCache text) {
+        State s = state;
+        if (s.textOrdered.contains(Key.probe(text.getText()))) return false;
+
+        Key key;
+        int handle = s.full ? TextArena.FULL : s.arena.append(text);
+        if (handle == TextArena.FULL || handle == TextArena.TOO_LARGE) {
+            if (handle == TextArena.TOO_LARGE) {
+                log.debug("Text of {} chars is larger than an arena chunk, caching it on the heap",
+                        text.getText().length());
+            } else if (!s.full) {
+                log.warn("Text arena of {} bytes is full, new texts are cached on the heap", budget);
+                s.full = true;
+            }
+            overflowTexts.increment();
+            key = Key.overflow(text);
+        } else {
+            key = Key.stored(handle);
+        }
+
+        s.valueTextMap.computeIfAbsent(text.getCharValue(), v -> new ConcurrentSkipListSet<>(s::compare)).add(key);
+        s.valueIndex.add(text.getCharValue());
+        s.textOrdered.add(key);
+        s.size.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public boolean contains(String text) {
+        return state.textOrdered.contains(Key.probe(text));
+    }
+
+    @Override
+    public int size() {
+        return state.size.get();
+    }
+
+    @Override
+    public synchronized void clear() {
+        state = new State(new TextArena(budget));
+    }
+
+    @Override
+    public LexicalNeighbours lexicalNeighbours(String text) {
+        State s = state;
+        Key probe = Key.probe(text);
+        return LexicalNeighbours.of(s.text(s.textOrdered.floor(probe)), s.text(s.textOrdered.ceiling(probe)));
+    }
+
+    @Override
+    public List<String> lexicalBelow(String text, int limit) {
+        State s = state;
+        return s.texts(s.textOrdered.headSet(Key.probe(text), true).descendingSet(), limit);
+    }
+
+    @Override
+    public List<String> lexicalAbove(String text, int limit) {
+        State s = state;
+        return s.texts(s.textOrdered.tailSet(Key.probe(text), false), limit);
+    }
+
+    @Override
+    public long closestValue(int value) {
+        return state.valueIndex.closest(value);
+    }
+
+    @Override
+    public int[] closestValues(int value, int limit) {
+        return state.valueIndex.closest(value, limit);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value) {
+        State s = state;
+        return s.valueTextMap.getOrDefault(value, Collections.emptyNavigableSet()).stream()
+                .map(s::text)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<String> textsWithValue(int value, int limit) {
+        State s = state;
+        return s.texts(s.valueTextMap.getOrDefault(value, Collections.emptyNavigableSet()), limit);
+    }
+
+    @Override
+    public void forEach(Consumer<TextCache> consumer) {
+        State s = state;
+        s.textOrdered.forEach(k -> consumer.accept(TextCache.of(s.text(k), s.charValue(k))));
+    }
+
+    /**
+     * Texts cached on the heap since the arena was full, over the life of the index.
+     */
+    public long overflowTexts() {
+        return overflowTexts.sum();
+    }
+
+    public long allocatedBytes() {
+        return state.arena.allocatedBytes();
+    }
+
+    private static class State {
+        private final TextArena arena;
+        private final NavigableSet<Key> textOrdered = new ConcurrentSkipListSet<>(this::compare);
+        private final Map<Integer, NavigableSet<Key>> valueTextMap = new ConcurrentHashMap<>();
+        private final ValueIndex valueIndex = new ValueIndex();
+        private final AtomicInteger size = new AtomicInteger();
+        private boolean full;
+
+        private State(TextArena arena) {
+            this.arena = arena;
+        }
+
+        private String text(Key key) {
+            if (key == null) return null;
+            return key.text != null ? key.text : arena.text(key.handle);
+        }
+
+        private int charValue(Key key) {
+            return key.text != null ? key.charValue : arena.charValue(key.handle);
+        }
+
+        private List<String> texts(Iterable<Key> keys, int limit) {
+            List<String> texts = new ArrayList<>(Math.min(limit, 16));
+            for (Key key : keys) {
+                if (texts.size() >= limit) break;
+                texts.add(text(key));
+            }
+            return texts;
+        }
+
+        private int compare(Key lhs, Key rhs) {
+            if (lhs.text == null && rhs.text == null) return arena.compare(lhs.handle, rhs.handle);
+            if (lhs.text == null) return arena.compare(lhs.handle, rhs.text);
+            if (rhs.text == null) return -arena.compare(rhs.handle, lhs.text);
+            return String.CASE_INSENSITIVE_ORDER.compare(lhs.text, rhs.text);
+        }
+    }
+
+    /**
+     * Either the handle of a text in the arena, or the text itself when it overflowed the arena or is only a probe.
+     */
+    private static final class Key {
+        private final int handle;
+        private final String text;
+        private final int charValue;
+
+        private Key(int handle, String text, int charValue) {
+            this.handle = handle;
+            this.text = text;
+            this.charValue = charValue;
+        }
+
+        private static Key stored(int handle) {
+            return new Key(handle, null, 0);
+        }
+
+        private static Key overflow(TextCache text) {
+            return new Key(-1, text.getText(), text.getCharValue());
+        }
+
+        private static Key probe(String text) {
+            return new Key(-1, text, 0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class BatchTextWriter {
+    private static final String INSERT_TEXTS = "INSERT INTO Texts (txt, value) "
+            + "SELECT * FROM UNNEST($1::text[], $2::int[]) ON CONFLICT DO NOTHING";
+
+    private final Vertx vertx;
+    private final SqlClient sqlClient;
+    private final WriteBehindOptions options;
+    private final BlockingQueue<PendingText> queue;
+    private final AtomicInteger inserting = new AtomicInteger();
+    private final long timerId;
+    private volatile boolean closed;
+
+    public BatchTextWriter(Vertx vertx, SqlClient sqlClient, WriteBehindOptions options) {
+        this.vertx = vertx;
+        this.sqlClient = sqlClient;
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueSize());
+        this.timerId = vertx.setPeriodic(options.getFlushInterval(), id -> flushAll());
+    }
+
+    public Future<Void> write(TextCache text) {
+        if (closed) return Future.failedFuture(new IllegalStateException("Writer is closed"));
+
+        Promise<Void> promise = Promise.promise();
+        if (queueSize() >= options.getQueueSize() || !queue.offer(new PendingText(text, promise))) {
+            flush();
+            return Future.failedFuture(new WriteQueueFullException("Write queue is full, refusing text: " + text));
+        }
+
+        if (queue.size() >= options.getBatchSize()) flush();
+
+        return promise.future();
+    }
+
+    /**
+     * Queues the texts together, so they count against the queue bound until inserted and are inserted in batches
+     * like single writes, then flushes them without waiting for the timer. Texts not fitting in the queue are refused.
+     */
+    public Future<Void> writeAll(List<TextCache> texts) {
+        if (closed) return Future.failedFuture(new IllegalStateException("Writer is closed"));
+        if (texts.isEmpty()) return Future.succeededFuture();
+        if (options.getQueueSize() - queueSize() < texts.size()) {
+            flush();
+            return Future.failedFuture(new WriteQueueFullException("Write queue is full, refusing " + texts.size()
+                    + " texts"));
+        }
+
+        log.debug("Writing {} texts", texts.size());
+        List<Future<Void>> writes = new ArrayList<>(texts.size());
+        for (TextCache text : texts) {
+            Promise<Void> promise = Promise.promise();
+            if (!queue.offer(new PendingText(text, promise))) {
+                promise.fail(new WriteQueueFullException("Write queue is full, refusing text: " + text));
+            }
+            writes.add(promise.future());
+        }
+
+        flushAll();
+        return Future.all(writes).mapEmpty();
+    }
+
+    /**
+     * Texts queued or being inserted.
+     */
+    public int queueSize() {
+        return queue.size() + inserting.get();
+    }
+
+    public Future<Void> close() {
+        closed = true;
+        vertx.cancelTimer(timerId);
+
+        log.info("Draining {} queued texts", queue.size());
+        return flushAll();
+    }
+
+    private Future<Void> flushAll() {
+        List<Future<Void>> flushes = new ArrayList<>();
+        while (!queue.isEmpty()) flushes.add(flush());
+
+        return Future.join(flushes).mapEmpty();
+    }
+
+    private Future<Void> flush() {
+        List<PendingText> batch = new ArrayList<>(options.getBatchSize());
+        queue.drainTo(batch, options.getBatchSize());
+        if (batch.isEmpty()) return Future.succeededFuture();
+
+        List<TextCache> texts = new ArrayList<>(batch.size());
+        batch.forEach(p -> texts.add(p.text));
+
+        log.debug("Flushing {} texts", batch.size());
+        inserting.addAndGet(batch.size());
+        return insert(texts)
+                .onComplete(r -> inserting.addAndGet(-batch.size()))
+                .onSuccess(v -> batch.forEach(p -> p.promise.complete()))
+                .onFailure(t -> {
+                    log.error("Could not flush " + batch.size() + " texts", t);
+                    batch.forEach(p -> p.promise.fail(t));
+                });
+    }
+
+    private Future<Void> insert(List<TextCache> texts) {
+        String[] txts = new String[texts.size()];
+        Integer[] values = new Integer[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            txts[i] = texts.get(i).getText();
+            values[i] = texts.get(i).getCharValue();
+        }
+
+        return sqlClient.preparedQuery(INSERT_TEXTS)
+                .execute(Tuple.tuple().addArrayOfString(txts).addArrayOfInteger(values))
+                .mapEmpty();
+    }
+
+    @AllArgsConstructor
+    private static class PendingText {
+        private final TextCache text;
+        private final Promise<Void> promise;
+    }
+}
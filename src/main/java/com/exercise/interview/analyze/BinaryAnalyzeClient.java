@@ -0,0 +1,80 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetSocket;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client of the TCP endpoint pipelining its requests on a single connection, matching the responses by request id.
+ * Failures are given as the {@link InvalidRequestException} or {@link OverloadedException} the server answered with.
+ * It keeps its state on the context that connected it, from which it has to be used.
+ */
+public class BinaryAnalyzeClient {
+    private final NetSocket socket;
+    private final Map<Integer, Promise<AnalyzeResponse>> pending = new HashMap<>();
+    private int nextId;
+
+    private BinaryAnalyzeClient(NetSocket socket) {
+        this.socket = socket;
+        BinaryProtocol.frames(socket, this::handleFrame, t -> socket.close())
+                .exceptionHandler(this::failPending);
+        socket.closeHandler(v -> failPending(new IllegalStateException("Connection closed")));
+    }
+
+    public static Future<BinaryAnalyzeClient> connect(Vertx vertx, String host, int port) {
+        Context context = vertx.getOrCreateContext();
+        Promise<BinaryAnalyzeClient> connected = Promise.promise();
+        context.runOnContext(v -> vertx.createNetClient(new NetClientOptions().setTcpNoDelay(true))
+                .connect(port, host)
+                .map(socket -> new BinaryAnalyzeClient(socket))
+                .onComplete(connected));
+        return connected.future();
+    }
+
+    public Future<AnalyzeResponse> analyze(String text) {
+        Promise<AnalyzeResponse> promise = Promise.promise();
+        int id = nextId++;
+        pending.put(id, promise);
+        socket.write(BinaryProtocol.request(id, text));
+        return promise.future();
+    }
+
+    public int pending() {
+        return pending.size();
+    }
+
+    public Future<Void> close() {
+        return socket.close();
+    }
+
+    private void handleFrame(Buffer frame) {
+        Promise<AnalyzeResponse> promise = pending.remove(BinaryProtocol.id(frame));
+        if (promise == null) return;
+
+        switch (BinaryProtocol.code(frame)) {
+            case BinaryProtocol.OK:
+                promise.complete(BinaryProtocol.analyzeResponse(frame));
+                break;
+            case BinaryProtocol.INVALID:
+                promise.fail(new InvalidRequestException(BinaryProtocol.message(frame)));
+                break;
+            case BinaryProtocol.OVERLOADED:
+                promise.fail(new OverloadedException(BinaryProtocol.message(frame), "Shed by the server"));
+                break;
+            default:
+                promise.fail(new IllegalStateException("Server error: " + BinaryProtocol.message(frame)));
+        }
+    }
+
+    private void failPending(Throwable t) {
+        pending.values().forEach(p -> p.tryFail(t));
+        pending.clear();
+    }
+}
@@ -0,0 +1,119 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.core.streams.ReadStream;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length prefixed frames of the TCP endpoint: the length of the rest of the frame, a request id chosen by the client
+ * and echoed in its response, a code and the payload. Responses come in the order they are ready, so a client may
+ * send many requests on a connection without waiting.
+ * <p>
+ * An {@link #ANALYZE} request carries the text in UTF-8. An {@link #OK} response carries the closest value and the
+ * closest lexical texts, each as its UTF-8 length, -1 when absent, and bytes; the other responses carry a message,
+ * the reason of the shedding for {@link #OVERLOADED}.
+ */
+public final class BinaryProtocol {
+    public static final byte ANALYZE = 1;
+
+    public static final byte OK = 0;
+    public static final byte INVALID = 1;
+    public static final byte OVERLOADED = 2;
+    public static final byte ERROR = 3;
+
+    public static final int MAX_FRAME_BYTES = 1 << 20;
+
+    private static final int HEADER_BYTES = 5;
+
+    private BinaryProtocol() {}
+
+    public static Buffer request(int id, String text) {
+        return frame(id, ANALYZE, Buffer.buffer(text, "UTF-8"));
+    }
+
+    public static Buffer response(int id, AnalyzeResponse response) {
+        Buffer payload = Buffer.buffer();
+        appendText(payload, response.getValue());
+        appendText(payload, response.getLexical());
+        return frame(id, OK, payload);
+    }
+
+    public static Buffer failure(int id, byte code, String message) {
+        return frame(id, code, Buffer.buffer(message == null ? "" : message, "UTF-8"));
+    }
+
+    public static int id(Buffer frame) {
+        return frame.getInt(0);
+    }
+
+    public static byte code(Buffer frame) {
+        return frame.getByte(4);
+    }
+
+    public static String message(Buffer frame) {
+        return frame.getString(HEADER_BYTES, frame.length(), "UTF-8");
+    }
+
+    public static AnalyzeResponse analyzeResponse(Buffer frame) {
+        int valueLength = frame.getInt(HEADER_BYTES);
+        int lexicalAt = HEADER_BYTES + 4 + Math.max(0, valueLength);
+        return AnalyzeResponse.of(text(frame, HEADER_BYTES), text(frame, lexicalAt));
+    }
+
+    /**
+     * Splits the stream into frames without their length prefix. A frame over {@link #MAX_FRAME_BYTES} or too short
+     * to have a header is given to the error handler, after which the stream should be closed.
+     */
+    public static RecordParser frames(ReadStream<Buffer> stream, Handler<Buffer> frameHandler,
+                                      Handler<Throwable> errorHandler) {
+        RecordParser parser = RecordParser.newFixed(4, stream);
+        parser.handler(new Handler<>() {
+            private boolean header = true;
+
+            @Override
+            public void handle(Buffer record) {
+                if (!header) {
+                    header = true;
+                    parser.fixedSizeMode(4);
+                    frameHandler.handle(record);
+                    return;
+                }
+
+                int length = record.getInt(0);
+                if (length < HEADER_BYTES || length > MAX_FRAME_BYTES) {
+                    errorHandler.handle(new InvalidRequestException("Invalid frame length: " + length));
+                    return;
+                }
+                header = false;
+                parser.fixedSizeMode(length);
+            }
+        });
+        return parser;
+    }
+
+    private static Buffer frame(int id, byte code, Buffer payload) {
+        return Buffer.buffer(4 + HEADER_BYTES + payload.length())
+                .appendInt(HEADER_BYTES + payload.length())
+                .appendInt(id)
+                .appendByte(code)
+                .appendBuffer(payload);
+    }
+
+    private static void appendText(Buffer buffer, String text) {
+        if (text == null) {
+            buffer.appendInt(-1);
+            return;
+        }
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+
+    private static String text(Buffer frame, int at) {
+        int length = frame.getInt(at);
+        return length < 0 ? null : frame.getString(at + 4, at + 4 + length, "UTF-8");
+    }
+}
@@ -0,0 +1,137 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports a file of texts, one per line, bypassing the analysis. The lines are validated, scored and deduplicated
+ * case insensitively in parallel on a fork/join pool and sorted, then stored in batches and cached in a single pass.
+ * Only files in the import directory are read, and one import runs at a time.
+ */
+@Slf4j
+public class BulkImporter {
+    private final Vertx vertx;
+    private final TextRepositoryImpl repository;
+    private final Path directory;
+    private final int parallelism;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BulkImporter(Vertx vertx, TextRepositoryImpl repository, Path directory, int parallelism, int batchSize) {
+        this.vertx = vertx;
+        this.repository = repository;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public Future<ImportResult> importFile(String name) {
+        Path file = directory.resolve(name).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            return Future.failedFuture(new InvalidRequestException("Unknown import file: " + name));
+        }
+        if (!running.compareAndSet(false, true)) {
+            return Future.failedFuture(new OverloadedException("import", "An import is already running"));
+        }
+
+        log.info("Importing texts of {}", file);
+        long start = System.nanoTime();
+        return vertx.<Scored>executeBlocking(promise -> promise.complete(score(file)), false)
+                .flatMap(scored -> repository.importTexts(scored.texts, batchSize)
+                        .map(imported -> ImportResult.of(scored.lines, scored.invalid,
+                                scored.valid - scored.texts.size(), imported)))
+                .onSuccess(r -> log.info("Imported {} in {} ms: {}", file,
+                        (System.nanoTime() - start) / 1_000_000, r))
+                .onFailure(t -> log.error("Could not import " + file, t))
+                .onComplete(r -> running.set(false));
+    }
+
+    private Scored score(Path file) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> scoreLines(file)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring " + file, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ?
+                    (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs in the fork/join pool, so the parallel streams split their work among its threads. The first of the
+     * texts differing only in case is kept.
+     */
+    private Scored scoreLines(Path file) {
+        LongAdder lines = new LongAdder();
+        LongAdder invalid = new LongAdder();
+
+        Map<String, TextCache> unique;
+        try (Stream<String> texts = Files.lines(file, StandardCharsets.UTF_8)) {
+            unique = texts.parallel()
+                    .filter(l -> !l.isBlank())
+                    .map(l -> {
+                        lines.increment();
+                        TextCache text = scoreOrNull(l.strip());
+                        if (text == null) invalid.increment();
+                        return text;
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toMap(t -> AnalyzeServiceImpl.foldCase(t.getText()), Function.identity(),
+                            (first, second) -> first));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        TextCache[] sorted = unique.values().toArray(new TextCache[0]);
+        Arrays.parallelSort(sorted, Comparator.comparing(TextCache::getText, String.CASE_INSENSITIVE_ORDER));
+        return new Scored(lines.sum(), invalid.sum(), lines.sum() - invalid.sum(), Arrays.asList(sorted));
+    }
+
+    private static TextCache scoreOrNull(String text) {
+        try {
+            return TextCache.of(text, AnalyzeServiceImpl.charValue(text));
+        } catch (InvalidRequestException e) {
+            return null;
+        }
+    }
+
+    @Value(staticConstructor = "of")
+    public static class ImportResult {
+        long lines;
+        long invalid;
+        long duplicates;
+        int imported;
+    }
+
+    @Value
+    private static class Scored {
+        long lines;
+        long invalid;
+        long valid;
+        List<TextCache> texts;
+    }
+}
@@ -0,0 +1,127 @@
+package com.exercise.interview.analyze;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tags;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Single;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Keeps the responses of recently analyzed texts, in a bounded W-TinyLFU cache keyed by the lower cased text.
+ * A response is reused until a text added since it was computed may be closer to the text, checked against the
+ * recent texts of {@link TextChanges}, so inserts elsewhere in the lexical order and with other char values keep it.
+ */
+@Slf4j
+public class CachingAnalyzeService implements AnalyzeService {
+    private final AnalyzeService delegate;
+    private final TextRepository textRepository;
+    private final TextChanges changes;
+    private final AnalyzeMetrics metrics;
+    private final Cache<String, CachedResponse> responses;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stale;
+
+    public CachingAnalyzeService(AnalyzeService delegate, TextRepository textRepository, TextChanges changes,
+                                 AnalyzeMetrics metrics, long maximumSize) {
+        this.delegate = delegate;
+        this.textRepository = textRepository;
+        this.changes = changes;
+        this.metrics = metrics;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+
+        metrics.monitor(responses, "analyze.responses");
+        String description = "Lookups of the response cache, by result";
+        this.hits = metrics.counter("analyze.responses.lookups", description, Tags.of("result", "hit"));
+        this.misses = metrics.counter("analyze.responses.lookups", description, Tags.of("result", "miss"));
+        this.stale = metrics.counter("analyze.responses.lookups", description, Tags.of("result", "stale"));
+    }
+
+    @Override
+    public Single<AnalyzeResponse> analyze(String text) {
+        return analyze(TextCache.of(text, AnalyzeServiceImpl.charValue(text)));
+    }
+
+    @Override
+    public Single<AnalyzeResponse> analyze(TextCache text) {
+        String key = AnalyzeServiceImpl.foldCase(text.getText());
+        long current = changes.epoch();
+
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null && isCurrent(text, cached, current)) {
+            if (cached.getEpoch() != current) responses.put(key, cached.at(current));
+            hits.increment();
+            log.debug("text: {}, cached response: {}", text.getText(), cached.getResponse());
+
+            return AnalyzeServiceImpl.save(metrics, textRepository, text).toSingleDefault(cached.getResponse());
+        }
+
+        (cached == null ? misses : stale).increment();
+        return delegate.analyze(text)
+                .doOnSuccess(r -> responses.put(key, CachedResponse.of(current, r, charValue(r.getValue()))));
+    }
+
+    private boolean isCurrent(TextCache text, CachedResponse cached, long current) {
+        return cached.getEpoch() == current
+                || !changes.anyAdded(cached.getEpoch(), current, added -> mayChange(text, cached, added));
+    }
+
+    /**
+     * Whether the added text may be the closest by value or lexically instead of the cached ones. Lexically, it
+     * has to fall between the text and the cached one, or else be the closer of the two on the other side.
+     */
+    private static boolean mayChange(TextCache text, CachedResponse cached, TextCache added) {
+        String value = cached.getResponse().getValue();
+        String lexical = cached.getResponse().getLexical();
+        if (value == null || lexical == null) return true;
+
+        int distance = Math.abs(added.getCharValue() - text.getCharValue());
+        int cachedDistance = Math.abs(cached.getCharValue() - text.getCharValue());
+        if (distance < cachedDistance || distance == cachedDistance && added.getCharValue() >= cached.getCharValue()) {
+            return true;
+        }
+
+        if (lexical.equalsIgnoreCase(text.getText())) return false;
+        String other = added.getText();
+        int position = String.CASE_INSENSITIVE_ORDER.compare(other, text.getText());
+        if (String.CASE_INSENSITIVE_ORDER.compare(lexical, text.getText()) < 0) {
+            if (position <= 0) return String.CASE_INSENSITIVE_ORDER.compare(other, lexical) > 0;
+            return !TextKernel.isCloser(text.getText(), lexical, other);
+        }
+        if (position >= 0) return String.CASE_INSENSITIVE_ORDER.compare(other, lexical) < 0;
+        return TextKernel.isCloser(text.getText(), other, lexical);
+    }
+
+    private static int charValue(String text) {
+        return text == null ? 0 : AnalyzeServiceImpl.charValue(text);
+    }
+
+    @Override
+    public Flowable<AnalyzeResponse> analyzeBatch(List<String> texts) {
+        return delegate.analyzeBatch(texts);
+    }
+
+    @Override
+    public Single<AnalyzeTopResponse> analyzeTop(String text, int k) {
+        return delegate.analyzeTop(text, k);
+    }
+
+    @Value(staticConstructor = "of")
+    private static class CachedResponse {
+        long epoch;
+        AnalyzeResponse response;
+        int charValue;
+
+        CachedResponse at(long epoch) {
+            return of(epoch, response, charValue);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.exercise.interview.analyze;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class HeapTextIndex implements TextIndex {
+    private final ValueIndex valueIndex = new ValueIndex();
+    private final Map<Integer, NavigableSet<String>> valueTextMap = new ConcurrentHashMap<>();
+    private final LexicalIndex lexicalIndex;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public HeapTextIndex() {
+        this(new SkipListLexicalIndex());
+    }
+
+    public HeapTextIndex(LexicalIndex lexicalIndex) {
+        this.lexicalIndex = lexicalIndex;
+    }
+
+    @Override
+    public boolean add(TextCache text) {
+        valueTextMap.computeIfAbsent(text.getCharValue(), v -> new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER))
+                .add(text.getText());
+        valueIndex.add(text.getCharValue());
+
+        if (!lexicalIndex.add(text.getText())) return false;
+
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Groups the texts by char value, so each value set and the value index are updated once, before adding the
+     * texts to the lexical index in order.
+     */
+    @Override
+    public int addAll(List<TextCache> sortedTexts) {
+        Map<Integer, List<String>> textsByValue = new HashMap<>();
+        for (TextCache text : sortedTexts) {
+            textsByValue.computeIfAbsent(text.getCharValue(), v -> new ArrayList<>()).add(text.getText());
+        }
+        textsByValue.forEach((value, texts) -> valueTextMap
+                .computeIfAbsent(value, v -> new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER))
+                .addAll(texts));
+        valueIndex.addAll(textsByValue.keySet().stream().mapToInt(Integer::intValue).toArray());
+
+        int added = 0;
+        for (TextCache text : sortedTexts) {
+            if (lexicalIndex.add(text.getText())) added++;
+        }
+        size.addAndGet(added);
+        return added;
+    }
+
+    @Override
+    public boolean contains(String text) {
+        return lexicalIndex.contains(text);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void clear() {
+        valueIndex.clear();
+        valueTextMap.clear();
+        lexicalIndex.clear();
+        size.set(0);
+    }
+
+    @Override
+    public LexicalNeighbours lexicalNeighbours(String text) {
+        return lexicalIndex.neighbours(text);
+    }
+
+    @Override
+    public List<String> lexicalBelow(String text, int limit) {
+        return lexicalIndex.below(text, limit);
+    }
+
+    @Override
+    public List<String> lexicalAbove(String text, int limit) {
+        return lexicalIndex.above(text, limit);
+    }
+
+    @Override
+    public long closestValue(int value) {
+        return valueIndex.closest(value);
+    }
+
+    @Override
+    public int[] closestValues(int value, int limit) {
+        return valueIndex.closest(value, limit);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value) {
+        return new ArrayList<>(valueTextMap.getOrDefault(value, Collections.emptyNavigableSet()));
+    }
+
+    @Override
+    public List<String> textsWithValue(int value, int limit) {
+        List<String> texts = new ArrayList<>(Math.min(limit, 16));
+        for (String text : valueTextMap.getOrDefault(value, Collections.emptyNavigableSet())) {
+            if (texts.size() >= limit) break;
+            texts.add(text);
+        }
+        return texts;
+    }
+
+    @Override
+    public void forEach(Consumer<TextCache> consumer) {
+        valueTextMap.forEach((value, texts) -> texts.forEach(t -> consumer.accept(TextCache.of(t, value))));
+    }
+}
@@ -0,0 +1,206 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.Timer;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RequestBody;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.rxjava3.RxHelper;
+import io.vertx.rxjava3.SingleHelper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@AllArgsConstructor
+@Slf4j
+public class HttpServerVerticle extends AbstractVerticle {
+    private final AnalyzeService analyzeService;
+    private final AnalyzeMetrics metrics;
+    private final AdmissionControl admissionControl;
+    private final BooleanSupplier ready;
+    private final BulkImporter bulkImporter;
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        Router router = Router.router(vertx);
+        router.post("/analyze")
+                .handler(this::handleRequest)
+                .failureHandler(this::handleFailure);
+        router.route().handler(BodyHandler.create());
+        router.post("/analyze/batch")
+                .handler(this::handleBatchRequest)
+                .failureHandler(this::handleFailure);
+        if (bulkImporter != null) {
+            router.post("/admin/import")
+                    .handler(this::handleImport)
+                    .failureHandler(this::handleFailure);
+        }
+        router.get("/ready").handler(this::handleReady);
+        router.get("/metrics").handler(this::handleMetrics);
+
+        int port = config().getInteger("PORT", 8888);
+        vertx.createHttpServer()
+                .requestHandler(router)
+                .listen(port)
+                .onSuccess(http -> log.info("HTTP server started on port " + port))
+                .<Void>mapEmpty()
+                .onComplete(startPromise);
+    }
+
+    private void handleReady(RoutingContext context) {
+        context.response()
+                .setStatusCode(ready.getAsBoolean() ? 200 : 503)
+                .end();
+    }
+
+    private void handleMetrics(RoutingContext context) {
+        context.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, AnalyzeMetrics.CONTENT_TYPE)
+                .end(metrics.scrape());
+    }
+
+    private void handleRequest(RoutingContext context) {
+        Integer k = parseK(context.queryParams().get("k"));
+
+        admissionControl.acquire();
+        context.request().body()
+                .flatMap(body -> analyze(body, k))
+                .onComplete(r -> admissionControl.release())
+                .onSuccess(context::json)
+                .onFailure(context::fail);
+    }
+
+    private Integer parseK(String k) {
+        if (k == null) return null;
+
+        int maxK = config().getInteger("MAX_K", 1000);
+        int parsed;
+        try {
+            parsed = Integer.parseInt(k);
+        } catch (NumberFormatException e) {
+            parsed = 0;
+        }
+
+        if (parsed < 1 || parsed > maxK) throw new InvalidRequestException("k must be between 1 and " + maxK + ": " + k);
+        return parsed;
+    }
+
+    private Future<Object> analyze(Buffer body, Integer k) {
+        Timer.Sample parsing = metrics.start();
+        TextCache text = AnalyzeRequestParser.parse(body);
+        String parsed = text != null ? text.getText() : Optional.of(body)
+                .filter(b -> b.length() > 0)
+                .map(Buffer::toJsonObject)
+                .map(j -> j.getString("text"))
+                .orElseThrow(InvalidRequestException::new);
+        metrics.stop("parse", parsing);
+
+        log.debug("Handling analyzing of text: {}", parsed);
+        Single<?> response = k != null ? analyzeService.analyzeTop(parsed, k) :
+                text != null ? analyzeService.analyze(text) : analyzeService.analyze(parsed);
+
+        return SingleHelper.toFuture(response.cast(Object.class))
+                .onFailure(t -> log.error("Could not analyze text", t));
+    }
+
+    private void handleBatchRequest(RoutingContext context) {
+        Timer.Sample parsing = metrics.start();
+        List<String> texts = parseBatch(context.body());
+        metrics.stop("parse_batch", parsing);
+
+        log.debug("Handling analyzing of batch of {} texts", texts.size());
+
+        admissionControl.acquire();
+        Flowable<AnalyzeResponse> responses = analyzeService.analyzeBatch(texts)
+                .doFinally(admissionControl::release);
+
+        HttpServerResponse response = context.response()
+                .setChunked(true)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson");
+
+        responses.observeOn(RxHelper.scheduler(vertx.getOrCreateContext()))
+                .subscribe(RxHelper.toSubscriber(response, (AnalyzeResponse r) -> Json.encodeToBuffer(r).appendString("\n"))
+                        .onError(t -> {
+                            if (!response.headWritten()) {
+                                context.fail(t);
+                                return;
+                            }
+                            if (t instanceof OverloadedException) shed((OverloadedException) t);
+                            else log.error("Could not analyze batch", t);
+                            response.reset();
+                        }));
+    }
+
+    private static List<String> parseBatch(RequestBody body) {
+        String content = Optional.ofNullable(body.asString())
+                .map(String::trim)
+                .orElseThrow(InvalidRequestException::new);
+
+        try {
+            Stream<Object> items = content.startsWith("[") ?
+                    new JsonArray(content).stream() :
+                    content.lines().filter(l -> !l.isBlank()).map(JsonObject::new);
+
+            return items.map(HttpServerVerticle::textOf).collect(Collectors.toList());
+        } catch (DecodeException e) {
+            throw new InvalidRequestException("Invalid batch: " + e.getMessage());
+        }
+    }
+
+    private static String textOf(Object item) {
+        return Optional.of(item)
+                .filter(JsonObject.class::isInstance)
+                .map(j -> ((JsonObject) j).getString("text"))
+                .orElseThrow(() -> new InvalidRequestException("Invalid batch item: " + item));
+    }
+
+    private void handleImport(RoutingContext context) {
+        String file = Optional.ofNullable(context.body().asJsonObject())
+                .map(j -> j.getString("file"))
+                .orElseThrow(() -> new InvalidRequestException("Missing import file"));
+
+        bulkImporter.importFile(file)
+                .onSuccess(context::json)
+                .onFailure(context::fail);
+    }
+
+    private void handleFailure(RoutingContext context) {
+        Throwable t = context.failure();
+        if (t instanceof OverloadedException) {
+            shed((OverloadedException) t);
+            context.response()
+                    .setStatusCode(503)
+                    .putHeader(HttpHeaders.RETRY_AFTER, String.valueOf(config().getInteger("RETRY_AFTER", 1)))
+                    .end();
+            return;
+        }
+
+        log.error("Failed handling request", t);
+        int statusCode = t instanceof InvalidRequestException || t instanceof DecodeException ? 400 : 500;
+        context.response()
+                .setStatusCode(statusCode)
+                .end();
+    }
+
+    private void shed(OverloadedException e) {
+        log.debug("Shed request: {}", e.getMessage());
+        metrics.shed(e);
+    }
+}
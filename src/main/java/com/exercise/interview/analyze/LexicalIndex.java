@@ -0,0 +1,23 @@
+package com.exercise.interview.analyze;
+
+import java.util.List;
+
+public interface LexicalIndex {
+    boolean add(String text);
+
+    boolean contains(String text);
+
+    void clear();
+
+    LexicalNeighbours neighbours(String text);
+
+    /**
+     * Up to limit texts lower than or equal to the given one, the closest first.
+     */
+    List<String> below(String text, int limit);
+
+    /**
+     * Up to limit texts greater than the given one, the closest first.
+     */
+    List<String> above(String text, int limit);
+}
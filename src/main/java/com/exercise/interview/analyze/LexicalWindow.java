@@ -0,0 +1,15 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Texts around a text in {@link String#CASE_INSENSITIVE_ORDER}: the lower or equal ones and the greater ones,
+ * each from the closest.
+ */
+@Value(staticConstructor = "of")
+public class LexicalWindow {
+    List<String> below;
+    List<String> above;
+}
@@ -0,0 +1,15 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+@Value(staticConstructor = "of")
+public class LogOptions {
+    Path path;
+    long segmentBytes;
+    int batchSize;
+    int queueSize;
+    boolean sync;
+    long compactionInterval;
+}
@@ -0,0 +1,415 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Texts appended to a directory of segment files named after the id of their first record.
+ * Each record is its payload length, a CRC32C of the payload, then the payload: id, char value and UTF-8 text.
+ * <p>
+ * A single thread appends the queued writes and syncs once for all it took from the queue, so writes arriving
+ * during a sync share the next one. It also replays and compacts the log, truncating a torn record left at the
+ * end of the last segment by a crash, and rewriting the sealed segments without the texts stored before them,
+ * ignoring case, which needs the texts of the sealed segments in memory while it runs.
+ */
+@Slf4j
+public class LogTextStore implements TextStore {
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 12;
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+    static final int MAX_TEXT_BYTES = MAX_PAYLOAD_BYTES - FIXED_PAYLOAD_BYTES;
+
+    private final Vertx vertx;
+    private final LogOptions options;
+    private final WarmUpOptions warmUpOptions;
+    private final BlockingQueue<PendingWrite> queue;
+    private final ExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+    private long compactionTimer = -1;
+
+    private FileChannel active;
+    private long nextId = 1;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+    public LogTextStore(Vertx vertx, LogOptions options, WarmUpOptions warmUpOptions) {
+        this.vertx = vertx;
+        this.options = options;
+        this.warmUpOptions = warmUpOptions;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueSize());
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "analyze-log-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Future<Void> open() {
+        return this.<Void>call(() -> {
+            recover();
+            return null;
+        })
+                .onSuccess(v -> {
+                    log.info("Opened log {}, next id {}", options.getPath(), nextId);
+                    if (options.getCompactionInterval() > 0) {
+                        compactionTimer = vertx.setPeriodic(options.getCompactionInterval(), id -> compact());
+                    }
+                });
+    }
+
+    @Override
+    public Future<Void> load(long afterId, ObjLongConsumer<TextCache> consumer) {
+        return call(() -> {
+            AtomicLong loaded = new AtomicLong();
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && baseId(segments.get(i + 1)) <= afterId + 1) continue;
+
+                Path segment = segments.get(i);
+                long valid = read(segment, (text, id) -> {
+                    if (id <= afterId) return;
+                    consumer.accept(text, id);
+                    if (loaded.incrementAndGet() % warmUpOptions.getProgressInterval() == 0) {
+                        log.info("Loaded {} texts", loaded.get());
+                    }
+                });
+                if (valid < Files.size(segment) && i + 1 < segments.size()) {
+                    log.error("Corrupted record at {} of {}, skipping the rest of the segment", valid, segment);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Future<Void> write(TextCache text) {
+        return enqueue(List.of(text));
+    }
+
+    @Override
+    public Future<Void> writeAll(List<TextCache> texts) {
+        if (texts.isEmpty()) return Future.succeededFuture();
+        return enqueue(texts);
+    }
+
+    /**
+     * Refuses texts longer than a record read back can be, since they would be taken for a corrupted record and
+     * truncated along with every record after them.
+     */
+    private Future<Void> enqueue(List<TextCache> texts) {
+        if (closed) return Future.failedFuture(new IllegalStateException("Log is closed"));
+        for (TextCache text : texts) {
+            if (!fits(text.getText())) {
+                return Future.failedFuture(new InvalidRequestException("Text longer than " + MAX_TEXT_BYTES
+                        + " bytes in UTF-8"));
+            }
+        }
+
+        PendingWrite write = new PendingWrite(texts, Promise.promise(), vertx.getOrCreateContext());
+        if (!queue.offer(write)) {
+            return Future.failedFuture(
+                    new WriteQueueFullException("Write queue is full, refusing " + texts.size() + " texts"));
+        }
+
+        if (flushScheduled.compareAndSet(false, true)) execute(this::flush);
+        return write.promise.future();
+    }
+
+    @Override
+    public int queueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public Future<Void> close() {
+        closed = true;
+        if (compactionTimer >= 0) vertx.cancelTimer(compactionTimer);
+
+        log.info("Draining {} queued writes", queue.size());
+        return this.<Void>call(() -> {
+            flush();
+            if (active != null) active.close();
+            return null;
+        })
+                .onComplete(r -> executor.shutdown());
+    }
+
+    /**
+     * Compacts the sealed segments now, instead of waiting for the compaction interval.
+     */
+    public Future<Void> compact() {
+        return this.<Void>call(() -> {
+            compactSealedSegments();
+            return null;
+        })
+                .onFailure(t -> log.error("Could not compact log " + options.getPath(), t));
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+
+        List<PendingWrite> batch = new ArrayList<>(options.getBatchSize());
+        while (queue.drainTo(batch, options.getBatchSize()) > 0) {
+            try {
+                append(batch);
+                batch.forEach(w -> w.context.runOnContext(v -> w.promise.complete()));
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not append " + batch.size() + " writes", e);
+                batch.forEach(w -> w.context.runOnContext(v -> w.promise.fail(e)));
+            }
+            batch.clear();
+        }
+    }
+
+    private void append(List<PendingWrite> batch) throws IOException {
+        if (active == null) throw new IllegalStateException("Log is not open");
+
+        buffer.clear();
+        for (PendingWrite write : batch) {
+            for (TextCache text : write.texts) {
+                byte[] bytes = text.getText().getBytes(StandardCharsets.UTF_8);
+                int recordBytes = HEADER_BYTES + FIXED_PAYLOAD_BYTES + bytes.length;
+
+                if (active.position() + buffer.position() + recordBytes > options.getSegmentBytes()) {
+                    writeBuffer();
+                    if (active.position() > 0) roll();
+                }
+                if (buffer.remaining() < recordBytes) {
+                    writeBuffer();
+                    if (buffer.capacity() < recordBytes) buffer = ByteBuffer.allocateDirect(recordBytes);
+                }
+                encode(buffer, nextId++, text.getCharValue(), bytes);
+            }
+        }
+
+        writeBuffer();
+        if (options.isSync()) active.force(false);
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) active.write(buffer);
+        buffer.clear();
+    }
+
+    private void roll() throws IOException {
+        if (options.isSync()) active.force(false);
+        active.close();
+        active = openSegment(nextId);
+    }
+
+    private static boolean fits(String text) {
+        return text.length() * 3L <= MAX_TEXT_BYTES
+                || text.getBytes(StandardCharsets.UTF_8).length <= MAX_TEXT_BYTES;
+    }
+
+    private static void encode(ByteBuffer buffer, long id, int charValue, byte[] text) {
+        int start = buffer.position();
+        buffer.putInt(FIXED_PAYLOAD_BYTES + text.length)
+                .putInt(0)
+                .putLong(id)
+                .putInt(charValue)
+                .put(text);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start + HEADER_BYTES).limit(buffer.position()));
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(options.getPath());
+
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            active = openSegment(1);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        AtomicLong lastId = new AtomicLong(baseId(last) - 1);
+        long valid = read(last, (text, id) -> lastId.set(id));
+        nextId = lastId.get() + 1;
+
+        active = FileChannel.open(last, StandardOpenOption.WRITE);
+        if (valid < active.size()) {
+            log.warn("Truncating {} bytes of torn records at the end of {}", active.size() - valid, last);
+            active.truncate(valid);
+            active.force(true);
+        }
+        active.position(valid);
+    }
+
+    private void compactSealedSegments() throws IOException {
+        List<Path> segments = segments();
+        Set<String> stored = new HashSet<>();
+        long removed = 0;
+
+        for (Path segment : segments.subList(0, Math.max(0, segments.size() - 1))) {
+            List<TextCache> texts = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            AtomicLong records = new AtomicLong();
+            long valid = read(segment, (text, id) -> {
+                records.incrementAndGet();
+                if (stored.add(AnalyzeServiceImpl.foldCase(text.getText()))) {
+                    texts.add(text);
+                    ids.add(id);
+                }
+            });
+
+            if (texts.size() == records.get() && valid == Files.size(segment)) continue;
+
+            removed += records.get() - texts.size();
+            rewrite(segment, texts, ids);
+        }
+
+        log.info("Compacted log {}, removed {} records", options.getPath(), removed);
+    }
+
+    private void rewrite(Path segment, List<TextCache> texts, List<Long> ids) throws IOException {
+        Path compacted = segment.resolveSibling(segment.getFileName() + ".compact");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            for (int i = 0; i < texts.size(); i++) {
+                byte[] bytes = texts.get(i).getText().getBytes(StandardCharsets.UTF_8);
+                int recordBytes = HEADER_BYTES + FIXED_PAYLOAD_BYTES + bytes.length;
+                if (out.remaining() < recordBytes) {
+                    out.flip();
+                    while (out.hasRemaining()) channel.write(out);
+                    out = ByteBuffer.allocate(Math.max(1 << 16, recordBytes));
+                }
+                encode(out, ids.get(i), texts.get(i).getCharValue(), bytes);
+            }
+            out.flip();
+            while (out.hasRemaining()) channel.write(out);
+            channel.force(true);
+        }
+
+        Files.move(compacted, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the records of a segment up to the end or the first one that is incomplete or corrupted,
+     * returning the length of the records read.
+     */
+    private static long read(Path segment, ObjLongConsumer<TextCache> consumer) throws IOException {
+        long size = Files.size(segment);
+        long valid = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            while (valid + HEADER_BYTES <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < FIXED_PAYLOAD_BYTES || length > MAX_PAYLOAD_BYTES) break;
+                if (valid + HEADER_BYTES + length > size) break;
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) break;
+
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                long id = record.getLong();
+                int charValue = record.getInt();
+                String text = new String(payload, FIXED_PAYLOAD_BYTES, length - FIXED_PAYLOAD_BYTES,
+                        StandardCharsets.UTF_8);
+
+                consumer.accept(TextCache.of(text, charValue), id);
+                valid += HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            log.debug("Segment {} ends in the middle of a record", segment);
+        }
+
+        return valid;
+    }
+
+    private FileChannel openSegment(long baseId) throws IOException {
+        Path segment = options.getPath().resolve(String.format("%020d%s", baseId, SUFFIX));
+        return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(options.getPath())) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long baseId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Log writer is stopped, not running task");
+        }
+    }
+
+    private <T> Future<T> call(Callable<T> task) {
+        Context context = vertx.getOrCreateContext();
+        Promise<T> promise = Promise.promise();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    T result = task.call();
+                    context.runOnContext(v -> promise.complete(result));
+                } catch (Exception e) {
+                    context.runOnContext(v -> promise.fail(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promise.fail(new IllegalStateException("Log is closed", e));
+        }
+
+        return promise.future();
+    }
+
+    @AllArgsConstructor
+    private static class PendingWrite {
+        private final List<TextCache> texts;
+        private final Promise<Void> promise;
+        private final Context context;
+    }
+}
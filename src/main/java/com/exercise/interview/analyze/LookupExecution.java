@@ -0,0 +1,119 @@
+package com.exercise.interview.analyze;
+
+import io.reactivex.rxjava3.core.Single;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Where the lookups of a request run: inline on the calling thread, usually an event loop, offloaded once per request
+ * to an executor, or adaptively offloaded while the moving average of the lookup time is above a threshold.
+ * The average is kept when offloaded too, so lookups go back inline once they are cheap again.
+ * Offloaded lookups the executor refuses, or that waited longer than the maximum queue wait for a thread, are shed
+ * rather than run on the calling thread.
+ */
+public class LookupExecution {
+    public enum Mode { INLINE, OFFLOAD, ADAPTIVE }
+
+    private final Mode mode;
+    private final Executor executor;
+    private final long offloadNanos;
+    private final long maxQueueWaitNanos;
+    private volatile long averageNanos;
+    private volatile boolean offloading;
+
+    public LookupExecution(Mode mode, Executor executor, long offloadNanos, long maxQueueWaitNanos) {
+        if (mode != Mode.INLINE && executor == null) throw new IllegalArgumentException(mode + " needs an executor");
+        this.mode = mode;
+        this.executor = executor;
+        this.offloadNanos = offloadNanos;
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+        this.offloading = mode == Mode.OFFLOAD;
+    }
+
+    public static LookupExecution inline() {
+        return new LookupExecution(Mode.INLINE, null, 0, 0);
+    }
+
+    /**
+     * Fixed pool refusing the tasks beyond the queue, so they are shed instead of queueing without bound or running
+     * on the event loops submitting them.
+     */
+    public static ThreadPoolExecutor boundedExecutor(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "analyze-lookup-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> Single<T> execute(Single<T> lookup) {
+        switch (mode) {
+            case INLINE:
+                return lookup;
+            case OFFLOAD:
+                return offload(lookup);
+            default:
+                return Single.defer(() -> {
+                    Single<T> measured = measure(lookup);
+                    return offloading ? offload(measured) : measured;
+                });
+        }
+    }
+
+    private <T> Single<T> offload(Single<T> lookup) {
+        return Single.create(emitter -> {
+            long queued = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    if (emitter.isDisposed()) return;
+                    if (maxQueueWaitNanos > 0 && System.nanoTime() - queued > maxQueueWaitNanos) {
+                        emitter.onError(new OverloadedException("queue_wait", "Lookup waited too long for a thread"));
+                        return;
+                    }
+                    emitter.setDisposable(lookup.subscribe(emitter::onSuccess, emitter::onError));
+                });
+            } catch (RejectedExecutionException e) {
+                emitter.onError(new OverloadedException("lookup_queue", "Lookup queue is full"));
+            }
+        });
+    }
+
+    private <T> Single<T> measure(Single<T> lookup) {
+        return Single.defer(() -> {
+            long start = System.nanoTime();
+            return lookup.doOnSuccess(r -> record(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Exponential moving average weighting each sample by 1/8, offloading above the threshold and going back
+     * inline below half of it, so lookups close to the threshold do not flip on every request.
+     */
+    private void record(long nanos) {
+        long average = averageNanos;
+        average += (nanos - average) >> 3;
+        averageNanos = average;
+
+        if (average > offloadNanos) offloading = true;
+        else if (average < offloadNanos / 2) offloading = false;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public long averageNanos() {
+        return averageNanos;
+    }
+
+    public boolean isOffloading() {
+        return offloading;
+    }
+}
@@ -1,31 +1,49 @@
 package com.exercise.interview.analyze;
 
-import io.reactivex.rxjava3.core.Single;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.vertx.config.ConfigRetriever;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
-import io.vertx.core.http.HttpServer;
 import io.vertx.core.json.JsonObject;
-import io.vertx.ext.web.RequestBody;
-import io.vertx.ext.web.Router;
-import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.micrometer.backends.BackendRegistries;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
-import io.vertx.rxjava3.SingleHelper;
+import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.PoolOptions;
 import io.vertx.sqlclient.SqlClient;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 public class MainVerticle extends AbstractVerticle {
     private AnalyzeService analyzeService;
+    private AnalyzeMetrics metrics;
+    private LookupExecution lookupExecution;
+    private ExecutorService lookupExecutor;
     private TextRepository textRepository;
+    private final List<TextRepository> localRepositories = new ArrayList<>();
+    private final List<TextStore> textStores = new ArrayList<>();
+    private AdmissionControl admissionControl;
+    private BulkImporter bulkImporter;
+    private TextChangeFeed changeFeed;
+    private volatile boolean ready;
 
     @Override
     public void init(Vertx vertx, Context context) {
@@ -36,60 +54,228 @@ public class MainVerticle extends AbstractVerticle {
     public void start(Promise<Void> startPromise) throws Exception {
         ConfigRetriever configRetriever = ConfigRetriever.create(vertx);
         configRetriever.getConfig()
-                .onSuccess(c -> startServerWithConfig(c, startPromise))
+                .onSuccess(c -> {
+                    try {
+                        startServerWithConfig(c, startPromise);
+                    } catch (RuntimeException e) {
+                        startPromise.fail(e);
+                    }
+                })
                 .onFailure(startPromise::fail);
     }
 
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        if (lookupExecutor != null) lookupExecutor.shutdown();
+
+        if (textRepository == null) {
+            stopPromise.complete();
+            return;
+        }
+
+        textRepository.close()
+                .eventually(v -> changeFeed == null ? Future.succeededFuture() : changeFeed.close())
+                .onComplete(stopPromise);
+    }
+
     private void startServerWithConfig(JsonObject config, Promise<Void> startPromise) {
-        SqlClient client = createSqlClient(config);
+        metrics = createMetrics();
+        lookupExecution = createLookupExecution(config);
+        Pool pool = createPool(config);
+        int shards = config.getInteger("SHARDS", 0);
 
-        textRepository = new TextRepositoryImpl(client);
-        analyzeService = new AnalyzeServiceImpl(textRepository);
+        if (shards > 0) {
+            textRepository = new ShardedTextRepository(vertx, shards, config.getLong("SHARD_TIMEOUT", 5000L));
+            analyzeService = new AnalyzeServiceImpl(textRepository, metrics, lookupExecution);
+            if (config.getLong("RESPONSE_CACHE_SIZE", 0L) > 0) {
+                log.warn("RESPONSE_CACHE_SIZE is ignored with SHARDS, texts saved by other nodes would not invalidate it");
+            }
+            if (config.getString("IMPORT_DIR") != null) {
+                log.warn("IMPORT_DIR is ignored with SHARDS, imports only fill an unsharded cache");
+            }
+            if (config.getBoolean("CHANGE_FEED", false)) {
+                log.warn("CHANGE_FEED is ignored with SHARDS, every text is already cached by its shard");
+            }
+        } else {
+            changeFeed = createChangeFeed(config);
+            TextIndex textIndex = createTextIndex(config, null, Tags.empty());
+            TextRepositoryImpl repository = createTextRepository(config, pool, textIndex, null, Tags.empty());
+            textRepository = repository;
+            localRepositories.add(repository);
+            analyzeService = createAnalyzeService(config, repository);
+            bulkImporter = createBulkImporter(config, repository);
+        }
 
-        Future<Void> loadTexts = loadCache(config);
+        admissionControl = createAdmissionControl(config);
 
-        Router router = Router.router(vertx);
-        router.route().handler(BodyHandler.create());
-        router.post("/analyze")
-                .respond(this::handleRequest)
-                .failureHandler(this::handleFailure);
+        Future<Void> loadTexts = (shards > 0 ? deployShards(config, pool, shards) : loadCache(config))
+                .flatMap(v -> startChangeFeed())
+                .onSuccess(v -> ready = true)
+                .onSuccess(v -> scheduleSnapshots(config));
 
-        int port = config.getInteger("PORT", 8888);
-        Future<HttpServer> httpServer = vertx.createHttpServer()
-                .requestHandler(router)
-                .listen(port)
-                .onSuccess(http -> log.info("HTTP server started on port " + port));
+        if (config.getBoolean("SERVE_DURING_WARMUP", false)) {
+            loadTexts.onFailure(t -> log.error("Cache warm-up failed, serving with a partial cache", t));
+            deployHttpServers(config).onComplete(startPromise);
+            return;
+        }
 
-        Future.join(loadTexts, httpServer)
-                .onSuccess(f -> startPromise.complete())
-                .onFailure(startPromise::fail);
+        loadTexts.flatMap(v -> deployHttpServers(config))
+                .onComplete(startPromise);
+    }
+
+    private AnalyzeMetrics createMetrics() {
+        MeterRegistry registry = Optional.ofNullable(BackendRegistries.getDefaultNow())
+                .orElseGet(() -> new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+
+        return new AnalyzeMetrics(registry);
+    }
+
+    private LookupExecution createLookupExecution(JsonObject config) {
+        String modeName = config.getString("LOOKUP_EXECUTION", "adaptive");
+        LookupExecution.Mode mode;
+        try {
+            mode = LookupExecution.Mode.valueOf(modeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown LOOKUP_EXECUTION: " + modeName);
+        }
+        if (mode == LookupExecution.Mode.INLINE) return LookupExecution.inline();
+
+        ThreadPoolExecutor executor = LookupExecution.boundedExecutor(
+                config.getInteger("LOOKUP_THREADS", Runtime.getRuntime().availableProcessors()),
+                config.getInteger("LOOKUP_QUEUE_SIZE", 1024));
+        lookupExecutor = executor;
+        metrics.gauge("analyze.lookup.queue", "Lookups waiting for a lookup thread", Tags.empty(),
+                () -> executor.getQueue().size());
+
+        LookupExecution execution = new LookupExecution(mode, executor,
+                TimeUnit.MICROSECONDS.toNanos(config.getLong("LOOKUP_OFFLOAD_MICROS", 50L)),
+                TimeUnit.MILLISECONDS.toNanos(config.getLong("MAX_QUEUE_WAIT", 0L)));
+        metrics.gauge("analyze.lookup.average", "Moving average of the lookup time in nanoseconds", Tags.empty(),
+                execution::averageNanos);
+        metrics.gauge("analyze.lookup.offloading", "Whether lookups are offloaded to the lookup threads",
+                Tags.empty(), () -> execution.isOffloading() ? 1 : 0);
+        return execution;
+    }
+
+    private AdmissionControl createAdmissionControl(JsonObject config) {
+        AdmissionControl control = new AdmissionControl(
+                config.getInteger("MAX_IN_FLIGHT", 0),
+                config.getInteger("MAX_QUEUED_WRITES", 0),
+                () -> textStores.stream().mapToInt(TextStore::queueSize).sum());
+        metrics.gauge("analyze.in_flight", "Analyze requests being handled", Tags.empty(), control::inFlight);
+        return control;
+    }
+
+    private AnalyzeService createAnalyzeService(JsonObject config, TextRepositoryImpl repository) {
+        AnalyzeService service = new AnalyzeServiceImpl(repository, metrics, lookupExecution);
+        long cacheSize = config.getLong("RESPONSE_CACHE_SIZE", 0L);
+        if (cacheSize <= 0) return service;
+
+        log.info("Caching up to {} responses", cacheSize);
+        return new CachingAnalyzeService(service, repository, repository, metrics, cacheSize);
+    }
+
+    private TextChangeFeed createChangeFeed(JsonObject config) {
+        if (!config.getBoolean("CHANGE_FEED", false)) return null;
+        if (!"postgres".equals(textStoreType(config))) {
+            log.warn("CHANGE_FEED is ignored unless TEXT_STORE is postgres, other stores are not shared by instances");
+            return null;
+        }
+
+        TextChangeFeed feed = new TextChangeFeed(vertx,
+                config.getInteger("CHANGE_FEED_BATCH_SIZE", 500),
+                config.getLong("CHANGE_FEED_INTERVAL", 50L),
+                config.getLong("CHANGE_FEED_HEARTBEAT", 1000L));
+        metrics.counter("analyze.changes.published", "Stored texts published to the other instances", Tags.empty(),
+                feed::publishedTexts);
+        metrics.counter("analyze.changes.applied", "Texts published by other instances and cached", Tags.empty(),
+                feed::appliedTexts);
+        metrics.counter("analyze.changes.gaps", "Missed changes of other instances loaded from the store",
+                Tags.empty(), feed::gaps);
+        return feed;
     }
 
-    private Future<AnalyzeResponse> handleRequest(RoutingContext context) {
-        String text = Optional.of(context.body())
-                .map(RequestBody::asJsonObject)
-                .map(j -> j.getString("text"))
-                .orElseThrow(InvalidRequestException::new);
+    private Future<Void> startChangeFeed() {
+        if (changeFeed == null) return Future.succeededFuture();
 
-        log.debug("Handling analyzing of text: {}", text);
+        return changeFeed.start((TextRepositoryImpl) textRepository);
+    }
 
-        Single<AnalyzeResponse> response = analyzeService.analyze(text);
+    private BulkImporter createBulkImporter(JsonObject config, TextRepositoryImpl repository) {
+        String directory = config.getString("IMPORT_DIR");
+        if (directory == null) return null;
 
-        return SingleHelper.toFuture(response)
-                .onFailure(t -> log.error("Could not analyze text", t));
+        return new BulkImporter(vertx, repository, Path.of(directory),
+                config.getInteger("IMPORT_PARALLELISM", Runtime.getRuntime().availableProcessors()),
+                config.getInteger("IMPORT_BATCH_SIZE", 5000));
     }
 
-    private void handleFailure(RoutingContext context) {
-        Throwable t = context.failure();
-        log.error("Failed handling request", t);
-        int statusCode = t instanceof InvalidRequestException ? 400 : 500;
-        context.response()
-                .setStatusCode(statusCode)
-                .end();
+    private TextRepositoryImpl createTextRepository(JsonObject config, Pool pool, TextIndex textIndex,
+                                                    String suffix, Tags tags) {
+        TextRepositoryImpl repository = new TextRepositoryImpl(createTextStore(config, pool, suffix, tags),
+                createTextSnapshot(config, suffix), textIndex);
+        metrics.counter("analyze.saves.coalesced", "Saves joining a save of the same text in progress", tags,
+                repository::coalescedSaves);
+        return repository;
     }
 
-    private SqlClient createSqlClient(JsonObject config) {
-        if (!isToUseDb(config)) return null;
+    private Future<Void> deployShards(JsonObject config, Pool pool, int shards) {
+        List<Future<String>> deployments = shardIds(config, shards).stream()
+                .map(id -> {
+                    Tags tags = Tags.of("shard", String.valueOf(id));
+                    TextIndex textIndex = new PartitionedTextIndex(createTextIndex(config, "." + id, tags),
+                            id, shards);
+                    TextRepository shardRepository = createTextRepository(config, pool, textIndex, "." + id, tags);
+                    localRepositories.add(shardRepository);
+
+                    return vertx.deployVerticle(new ShardVerticle(id, shardRepository, isPersistent(config)),
+                            new DeploymentOptions().setConfig(config));
+                })
+                .collect(Collectors.toList());
+
+        return Future.all(deployments)
+                .onSuccess(c -> log.info("Deployed {} local shards of {}", deployments.size(), shards))
+                .flatMap(c -> textRepository.loadTexts());
+    }
+
+    private List<Integer> shardIds(JsonObject config, int shards) {
+        String shardIds = config.getString("SHARD_IDS");
+        if (shardIds == null) return IntStream.range(0, shards).boxed().collect(Collectors.toList());
+
+        return Arrays.stream(shardIds.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(id -> shardId(id, shards))
+                .collect(Collectors.toList());
+    }
+
+    private static int shardId(String id, int shards) {
+        int shard = Integer.parseInt(id);
+        if (shard < 0 || shard >= shards) throw new IllegalArgumentException("Unknown shard in SHARD_IDS: " + id);
+        return shard;
+    }
+
+    private Future<Void> deployHttpServers(JsonObject config) {
+        int instances = config.getInteger("HTTP_INSTANCES", Runtime.getRuntime().availableProcessors());
+        DeploymentOptions options = new DeploymentOptions()
+                .setConfig(config)
+                .setInstances(instances);
+
+        Future<Void> http = vertx.deployVerticle(
+                        () -> new HttpServerVerticle(analyzeService, metrics, admissionControl, () -> ready, bulkImporter),
+                        options)
+                .onSuccess(id -> log.info("Deployed {} HTTP server instances", instances))
+                .mapEmpty();
+        if (config.getInteger("TCP_PORT") == null) return http;
+
+        return http.flatMap(v -> vertx.deployVerticle(
+                        () -> new TcpServerVerticle(analyzeService, metrics, admissionControl), options))
+                .onSuccess(id -> log.info("Deployed {} TCP server instances", instances))
+                .mapEmpty();
+    }
+
+    private Pool createPool(JsonObject config) {
+        if (!"postgres".equals(textStoreType(config))) return null;
 
         PgConnectOptions connectOptions = new PgConnectOptions()
                 .setPort(config.getInteger("PGPORT", 5432))
@@ -100,16 +286,133 @@ public class MainVerticle extends AbstractVerticle {
 
         PoolOptions poolOptions = new PoolOptions().setMaxSize(config.getInteger("PGCONNECTIONS", 20));
 
-        return PgPool.client(vertx, connectOptions, poolOptions);
+        Pool pool = PgPool.pool(vertx, connectOptions, poolOptions);
+        metrics.gauge("analyze.pg.pool.connections", "Open connections of the database pool", Tags.empty(), pool::size);
+        metrics.gauge("analyze.pg.pool.max", "Maximum connections of the database pool", Tags.empty(),
+                poolOptions::getMaxSize);
+        return pool;
+    }
+
+    private TextIndex createTextIndex(JsonObject config, String suffix, Tags tags) {
+        String storage = config.getString("INDEX_STORAGE", "heap");
+        TextIndex textIndex;
+        switch (storage.toLowerCase()) {
+            case "heap":
+                textIndex = new HeapTextIndex(createLexicalIndex(config));
+                break;
+            case "arena":
+                long arenaBytes = config.getLong("ARENA_BYTES", 128L * 1024 * 1024);
+                if (arenaBytes < TextArena.CHUNK_SIZE) {
+                    throw new IllegalArgumentException("ARENA_BYTES must be at least " + TextArena.CHUNK_SIZE + ": "
+                            + arenaBytes);
+                }
+                ArenaTextIndex arenaIndex = new ArenaTextIndex(arenaBytes);
+                metrics.gauge("analyze.cache.arena.bytes", "Off-heap bytes allocated by the arena", tags,
+                        arenaIndex::allocatedBytes);
+                metrics.gauge("analyze.cache.arena.overflow", "Texts cached on the heap as the arena was full", tags,
+                        arenaIndex::overflowTexts);
+                textIndex = arenaIndex;
+                break;
+            case "tiered":
+                String path = config.getString("TIER_PATH", "texts-tiers") + (suffix == null ? "" : suffix);
+                TieredTextIndex tieredIndex = new TieredTextIndex(Path.of(path),
+                        () -> new HeapTextIndex(createLexicalIndex(config)),
+                        config.getLong("TIER_HEAP_BYTES", 64L * 1024 * 1024),
+                        config.getInteger("TIER_MAX_SEGMENTS", 8));
+                metrics.gauge("analyze.cache.segments", "On-disk segments of the tiered cache", tags,
+                        tieredIndex::segments);
+                textIndex = tieredIndex;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown INDEX_STORAGE: " + storage);
+        }
+
+        metrics.gauge("analyze.cache.texts", "Texts in the cache", tags, textIndex::size);
+        return textIndex;
+    }
+
+    private LexicalIndex createLexicalIndex(JsonObject config) {
+        String lexicalIndex = config.getString("LEXICAL_INDEX", "skiplist");
+        switch (lexicalIndex.toLowerCase()) {
+            case "skiplist":
+                return new SkipListLexicalIndex();
+            case "trie":
+                return new RadixTrieLexicalIndex();
+            default:
+                throw new IllegalArgumentException("Unknown LEXICAL_INDEX: " + lexicalIndex);
+        }
+    }
+
+    private TextSnapshot createTextSnapshot(JsonObject config, String suffix) {
+        String path = config.getString("SNAPSHOT_PATH");
+        if (path != null && suffix != null) path += suffix;
+        return new TextSnapshot(vertx, path == null ? null : Path.of(path));
+    }
+
+    private void scheduleSnapshots(JsonObject config) {
+        if (!isPersistent(config) || config.getString("SNAPSHOT_PATH") == null) return;
+
+        vertx.setPeriodic(config.getLong("SNAPSHOT_INTERVAL", 300000L), id -> localRepositories.forEach(TextRepository::saveSnapshot));
+    }
+
+    private WarmUpOptions createWarmUpOptions(JsonObject config) {
+        return WarmUpOptions.of(
+                config.getInteger("PGFETCHSIZE", 1000),
+                config.getInteger("WARMUP_PROGRESS_INTERVAL", 100000));
+    }
+
+    private TextStore createTextStore(JsonObject config, Pool pool, String suffix, Tags tags) {
+        TextStore textStore;
+        switch (textStoreType(config)) {
+            case "postgres":
+                textStore = new PgTextStore(pool, createTextWriter(config, pool), createWarmUpOptions(config),
+                        config.getLong("PGWATERMARKMARGIN", 10000L));
+                break;
+            case "log":
+                String path = config.getString("LOG_PATH", "texts-log") + (suffix == null ? "" : suffix);
+                LogOptions options = LogOptions.of(
+                        Path.of(path),
+                        config.getLong("LOG_SEGMENT_BYTES", 64L * 1024 * 1024),
+                        config.getInteger("LOG_BATCH_SIZE", 500),
+                        config.getInteger("LOG_QUEUE_SIZE", 10000),
+                        config.getBoolean("LOG_SYNC", true),
+                        config.getLong("LOG_COMPACTION_INTERVAL", 3600000L));
+                textStore = new LogTextStore(vertx, options, createWarmUpOptions(config));
+                break;
+            case "none":
+                textStore = new NoopTextStore();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown TEXT_STORE: " + config.getString("TEXT_STORE"));
+        }
+
+        if (changeFeed != null) textStore = new PublishingTextStore(textStore, changeFeed);
+        textStores.add(textStore);
+        metrics.gauge("analyze.writer.queue", "Texts waiting to be stored", tags, textStore::queueSize);
+        return textStore;
+    }
+
+    private BatchTextWriter createTextWriter(JsonObject config, SqlClient client) {
+        WriteBehindOptions options = WriteBehindOptions.of(
+                config.getInteger("PGBATCHSIZE", 500),
+                config.getLong("PGBATCHINTERVAL", 50L),
+                config.getInteger("PGQUEUESIZE", 10000));
+
+        return new BatchTextWriter(vertx, client, options);
     }
 
     private Future<Void> loadCache(JsonObject config) {
-        if (!isToUseDb(config)) return Future.succeededFuture();
+        if (!isPersistent(config)) return Future.succeededFuture();
 
        return textRepository.loadTexts();
     }
 
-    private boolean isToUseDb(JsonObject config) {
-        return !"false".equalsIgnoreCase(config.getString("USE_DB", "true"));
+    private String textStoreType(JsonObject config) {
+        boolean useDb = !"false".equalsIgnoreCase(config.getString("USE_DB", "true"));
+        return config.getString("TEXT_STORE", useDb ? "postgres" : "none").toLowerCase();
+    }
+
+    private boolean isPersistent(JsonObject config) {
+        return !"none".equals(textStoreType(config));
     }
 }
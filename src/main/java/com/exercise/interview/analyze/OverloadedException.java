@@ -0,0 +1,17 @@
+package com.exercise.interview.analyze;
+
+/**
+ * Work shed because the server is over one of its budgets, the reason naming which one.
+ */
+public class OverloadedException extends RuntimeException {
+    private final String reason;
+
+    public OverloadedException(String reason, String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,88 @@
+package com.exercise.interview.analyze;
+
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Index of a single shard, keeping only the texts whose case folded hash falls into its partition.
+ */
+@AllArgsConstructor
+public class PartitionedTextIndex implements TextIndex {
+    private final TextIndex delegate;
+    private final int partition;
+    private final int partitions;
+
+    public static int partitionOf(String text, int partitions) {
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return Math.floorMod(hash, partitions);
+    }
+
+    public boolean owns(String text) {
+        return partitionOf(text, partitions) == partition;
+    }
+
+    @Override
+    public boolean add(TextCache text) {
+        return owns(text.getText()) && delegate.add(text);
+    }
+
+    @Override
+    public boolean contains(String text) {
+        return delegate.contains(text);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public LexicalNeighbours lexicalNeighbours(String text) {
+        return delegate.lexicalNeighbours(text);
+    }
+
+    @Override
+    public List<String> lexicalBelow(String text, int limit) {
+        return delegate.lexicalBelow(text, limit);
+    }
+
+    @Override
+    public List<String> lexicalAbove(String text, int limit) {
+        return delegate.lexicalAbove(text, limit);
+    }
+
+    @Override
+    public long closestValue(int value) {
+        return delegate.closestValue(value);
+    }
+
+    @Override
+    public int[] closestValues(int value, int limit) {
+        return delegate.closestValues(value, limit);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value) {
+        return delegate.textsWithValue(value);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value, int limit) {
+        return delegate.textsWithValue(value, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<TextCache> consumer) {
+        delegate.forEach(consumer);
+    }
+}
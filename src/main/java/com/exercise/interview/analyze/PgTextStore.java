@@ -0,0 +1,88 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedStatement;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Texts stored in the Texts table. Their BIGSERIAL ids are taken on insert but seen on commit, so a row may commit
+ * after a row with a higher id was loaded. Loads after a watermark read back the given margin of ids below it, so
+ * such rows are still loaded once their insert commits, and the rows loaded again are ignored by the index.
+ */
+@AllArgsConstructor
+@Slf4j
+public class PgTextStore implements TextStore {
+    private final Pool pool;
+    private final BatchTextWriter textWriter;
+    private final WarmUpOptions warmUpOptions;
+    private final long watermarkMargin;
+
+    @Override
+    public Future<Void> open() {
+        return pool.query(
+            "CREATE TABLE IF NOT EXISTS Texts (txt TEXT NOT NULL PRIMARY KEY, value INT NOT NULL)")
+            .execute()
+            .flatMap(r -> pool.query("ALTER TABLE Texts ADD COLUMN IF NOT EXISTS id BIGSERIAL").execute())
+            .flatMap(r -> pool.query("CREATE INDEX IF NOT EXISTS texts_id_idx ON Texts (id)").execute())
+            .onComplete(s -> log.info("Created table"))
+            .mapEmpty();
+    }
+
+    @Override
+    public Future<Void> load(long afterId, ObjLongConsumer<TextCache> consumer) {
+        return pool.withTransaction(connection -> connection.prepare("SELECT txt, value, id FROM Texts WHERE id > $1")
+                .flatMap(statement -> streamRows(statement, Math.max(0, afterId - watermarkMargin), consumer)));
+    }
+
+    private Future<Void> streamRows(PreparedStatement statement, long afterId, ObjLongConsumer<TextCache> consumer) {
+        Promise<Void> promise = Promise.promise();
+        AtomicLong loaded = new AtomicLong();
+
+        statement.createStream(warmUpOptions.getFetchSize(), Tuple.of(afterId))
+            .exceptionHandler(promise::tryFail)
+            .endHandler(v -> promise.tryComplete())
+            .handler(row -> {
+                fromRow(row, consumer);
+                if (loaded.incrementAndGet() % warmUpOptions.getProgressInterval() == 0) {
+                    log.info("Loaded {} texts", loaded.get());
+                }
+            });
+
+        return promise.future();
+    }
+
+    private static void fromRow(Row row, ObjLongConsumer<TextCache> consumer) {
+        String text = row.getString("txt");
+        int charValue = row.getInteger("value");
+        consumer.accept(TextCache.of(text, charValue), row.getLong("id"));
+    }
+
+    @Override
+    public Future<Void> write(TextCache text) {
+        return textWriter.write(text);
+    }
+
+    @Override
+    public Future<Void> writeAll(List<TextCache> texts) {
+        return textWriter.writeAll(texts);
+    }
+
+    @Override
+    public int queueSize() {
+        return textWriter.queueSize();
+    }
+
+    @Override
+    public Future<Void> close() {
+        return textWriter.close();
+    }
+}
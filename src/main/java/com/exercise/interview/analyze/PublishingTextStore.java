@@ -0,0 +1,48 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Store handing the texts it wrote to the change feed once they are stored, so other instances cache them too.
+ */
+@AllArgsConstructor
+public class PublishingTextStore implements TextStore {
+    private final TextStore textStore;
+    private final TextChangeFeed changeFeed;
+
+    @Override
+    public Future<Void> open() {
+        return textStore.open();
+    }
+
+    @Override
+    public Future<Void> load(long afterId, ObjLongConsumer<TextCache> consumer) {
+        return textStore.load(afterId, consumer);
+    }
+
+    @Override
+    public Future<Void> write(TextCache text) {
+        return textStore.write(text)
+                .onSuccess(v -> changeFeed.stored(List.of(text)));
+    }
+
+    @Override
+    public Future<Void> writeAll(List<TextCache> texts) {
+        return textStore.writeAll(texts)
+                .onSuccess(v -> changeFeed.stored(texts));
+    }
+
+    @Override
+    public int queueSize() {
+        return textStore.queueSize();
+    }
+
+    @Override
+    public Future<Void> close() {
+        return textStore.close();
+    }
+}
@@ -0,0 +1,281 @@
+package com.exercise.interview.analyze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compressed trie over case folded texts, ordered like {@link String#CASE_INSENSITIVE_ORDER}, which finds the
+ * lexical neighbours of a text walking down its chars once instead of comparing whole strings.
+ * Writers are serialized and replace nodes copy on write, so readers never lock.
+ */
+public class RadixTrieLexicalIndex implements LexicalIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private volatile Node root = new Node(new char[0], NO_CHILDREN, null);
+
+    @Override
+    public synchronized boolean add(String text) {
+        char[] key = fold(text);
+        Node node = root;
+        int i = 0;
+
+        while (i < key.length) {
+            Node[] children = node.children;
+            int pos = search(children, key[i]);
+            if (pos < 0) {
+                node.children = insert(children, -pos - 1, new Node(Arrays.copyOfRange(key, i, key.length), NO_CHILDREN, text));
+                return true;
+            }
+
+            Node child = children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common == child.label.length) {
+                node = child;
+                i += common;
+                continue;
+            }
+
+            Node tail = new Node(Arrays.copyOfRange(child.label, common, child.label.length), child.children, child.text);
+            char[] midLabel = Arrays.copyOf(child.label, common);
+            Node mid;
+            if (i + common == key.length) {
+                mid = new Node(midLabel, new Node[] {tail}, text);
+            } else {
+                Node leaf = new Node(Arrays.copyOfRange(key, i + common, key.length), NO_CHILDREN, text);
+                mid = new Node(midLabel, leaf.label[0] < tail.label[0] ? new Node[] {leaf, tail} : new Node[] {tail, leaf}, null);
+            }
+
+            Node[] replaced = children.clone();
+            replaced[pos] = mid;
+            node.children = replaced;
+            return true;
+        }
+
+        if (node.text != null) return false;
+        node.text = text;
+        return true;
+    }
+
+    @Override
+    public boolean contains(String text) {
+        char[] key = fold(text);
+        Node node = root;
+        int i = 0;
+
+        while (i < key.length) {
+            Node[] children = node.children;
+            int pos = search(children, key[i]);
+            if (pos < 0) return false;
+
+            Node child = children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length) return false;
+
+            node = child;
+            i += common;
+        }
+
+        return node.text != null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        root = new Node(new char[0], NO_CHILDREN, null);
+    }
+
+    @Override
+    public LexicalNeighbours neighbours(String text) {
+        char[] key = fold(text);
+        Node node = root;
+        int i = 0;
+        String floor = null;
+        Node floorNode = null;
+        Node ceilingNode = null;
+
+        while (true) {
+            String nodeText = node.text;
+            if (i == key.length) {
+                if (nodeText != null) return LexicalNeighbours.of(nodeText, nodeText);
+                return LexicalNeighbours.of(max(floorNode, floor), min(node.children));
+            }
+
+            if (nodeText != null) {
+                floor = nodeText;
+                floorNode = null;
+            }
+
+            Node[] children = node.children;
+            int pos = search(children, key[i]);
+            int lower = pos < 0 ? -pos - 2 : pos - 1;
+            int higher = pos < 0 ? -pos - 1 : pos + 1;
+            if (lower >= 0) floorNode = children[lower];
+            if (higher < children.length) ceilingNode = children[higher];
+            if (pos < 0) return LexicalNeighbours.of(max(floorNode, floor), min(ceilingNode));
+
+            Node child = children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common == child.label.length) {
+                node = child;
+                i += common;
+            } else if (i + common == key.length || child.label[common] > key[i + common]) {
+                return LexicalNeighbours.of(max(floorNode, floor), min(child));
+            } else {
+                return LexicalNeighbours.of(max(child), min(ceilingNode));
+            }
+        }
+    }
+
+    @Override
+    public List<String> below(String text, int limit) {
+        List<String> texts = new ArrayList<>(Math.min(limit, 16));
+        below(root, fold(text), 0, limit, texts);
+        return texts;
+    }
+
+    @Override
+    public List<String> above(String text, int limit) {
+        List<String> texts = new ArrayList<>(Math.min(limit, 16));
+        above(root, fold(text), 0, limit, texts);
+        return texts;
+    }
+
+    /**
+     * Adds the texts of the subtree lower than or equal to the key, from the highest, the node's path matching the
+     * key up to i. A node's text is lower than the texts below it, which are ordered like its children.
+     */
+    private static void below(Node node, char[] key, int i, int limit, List<String> texts) {
+        String nodeText = node.text;
+        if (i == key.length) {
+            if (nodeText != null && texts.size() < limit) texts.add(nodeText);
+            return;
+        }
+
+        Node[] children = node.children;
+        int pos = search(children, key[i]);
+        int lower = pos < 0 ? -pos - 2 : pos - 1;
+        if (pos >= 0) {
+            Node child = children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common == child.label.length) below(child, key, i + common, limit, texts);
+            else if (i + common < key.length && child.label[common] < key[i + common]) descending(child, limit, texts);
+        }
+        for (int c = lower; c >= 0 && texts.size() < limit; c--) descending(children[c], limit, texts);
+        if (nodeText != null && texts.size() < limit) texts.add(nodeText);
+    }
+
+    /**
+     * Adds the texts of the subtree greater than the key, from the lowest, the node's path matching the key up to i.
+     */
+    private static void above(Node node, char[] key, int i, int limit, List<String> texts) {
+        Node[] children = node.children;
+        if (i == key.length) {
+            for (int c = 0; c < children.length && texts.size() < limit; c++) ascending(children[c], limit, texts);
+            return;
+        }
+
+        int pos = search(children, key[i]);
+        int higher = pos < 0 ? -pos - 1 : pos + 1;
+        if (pos >= 0) {
+            Node child = children[pos];
+            int common = commonPrefix(child.label, key, i);
+            if (common == child.label.length) above(child, key, i + common, limit, texts);
+            else if (i + common == key.length || child.label[common] > key[i + common]) ascending(child, limit, texts);
+        }
+        for (int c = higher; c < children.length && texts.size() < limit; c++) ascending(children[c], limit, texts);
+    }
+
+    private static void ascending(Node node, int limit, List<String> texts) {
+        String nodeText = node.text;
+        if (nodeText != null && texts.size() < limit) texts.add(nodeText);
+
+        Node[] children = node.children;
+        for (int c = 0; c < children.length && texts.size() < limit; c++) ascending(children[c], limit, texts);
+    }
+
+    private static void descending(Node node, int limit, List<String> texts) {
+        Node[] children = node.children;
+        for (int c = children.length - 1; c >= 0 && texts.size() < limit; c--) descending(children[c], limit, texts);
+
+        String nodeText = node.text;
+        if (nodeText != null && texts.size() < limit) texts.add(nodeText);
+    }
+
+    private static char[] fold(String text) {
+        char[] key = new char[text.length()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return key;
+    }
+
+    private static int search(Node[] children, char c) {
+        int low = 0;
+        int high = children.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char first = children[mid].label[0];
+            if (first < c) low = mid + 1;
+            else if (first > c) high = mid - 1;
+            else return mid;
+        }
+
+        return -(low + 1);
+    }
+
+    private static int commonPrefix(char[] label, char[] key, int from) {
+        int max = Math.min(label.length, key.length - from);
+        int i = 0;
+        while (i < max && label[i] == key[from + i]) i++;
+        return i;
+    }
+
+    private static Node[] insert(Node[] children, int pos, Node child) {
+        Node[] inserted = new Node[children.length + 1];
+        System.arraycopy(children, 0, inserted, 0, pos);
+        inserted[pos] = child;
+        System.arraycopy(children, pos, inserted, pos + 1, children.length - pos);
+        return inserted;
+    }
+
+    private static String max(Node node, String fallback) {
+        return node == null ? fallback : max(node);
+    }
+
+    private static String max(Node node) {
+        Node[] children = node.children;
+        while (children.length > 0) {
+            node = children[children.length - 1];
+            children = node.children;
+        }
+        return node.text;
+    }
+
+    private static String min(Node[] children) {
+        return children.length == 0 ? null : min(children[0]);
+    }
+
+    private static String min(Node node) {
+        if (node == null) return null;
+
+        String text = node.text;
+        while (text == null) {
+            node = node.children[0];
+            text = node.text;
+        }
+        return text;
+    }
+
+    private static final class Node {
+        private final char[] label;
+        private volatile Node[] children;
+        private volatile String text;
+
+        private Node(char[] label, Node[] children, String text) {
+            this.label = label;
+            this.children = children;
+            this.text = text;
+        }
+    }
+}
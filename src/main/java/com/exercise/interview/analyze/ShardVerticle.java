@@ -0,0 +1,143 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.stream.Collectors;
+
+/**
+ * Serves the lookups and saves of one partition of the texts on the event bus, at {@link #address(int)}.
+ */
+@AllArgsConstructor
+@Slf4j
+public class ShardVerticle extends AbstractVerticle {
+    static final String ACTION = "action";
+    static final int OVERLOADED = 503;
+    static final String PING = "ping";
+    static final String NEIGHBOURS = "neighbours";
+    static final String CLOSEST_VALUE = "closestValue";
+    static final String TEXTS_WITH_VALUE = "textsWithValue";
+    static final String LEXICAL_WINDOW = "lexicalWindow";
+    static final String CLOSEST_BY_VALUE = "closestByValue";
+    static final String SAVE = "save";
+    static final String SAVE_ALL = "saveAll";
+    static final String SNAPSHOT = "snapshot";
+
+    private final int shard;
+    private final TextRepository textRepository;
+    private final boolean loadTexts;
+
+    public static String address(int shard) {
+        return "analyze.shard." + shard;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        Future<Void> loaded = loadTexts ? textRepository.loadTexts() : Future.succeededFuture();
+
+        loaded.flatMap(v -> register())
+                .onSuccess(v -> log.info("Shard {} listening on {}", shard, address(shard)))
+                .onComplete(startPromise);
+    }
+
+    private Future<Void> register() {
+        Promise<Void> registered = Promise.promise();
+        vertx.eventBus().<JsonObject>consumer(address(shard), this::handle)
+                .completionHandler(registered);
+        return registered.future();
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        textRepository.close()
+                .onComplete(stopPromise);
+    }
+
+    private void handle(Message<JsonObject> message) {
+        String action = message.headers().get(ACTION);
+        JsonObject body = message.body();
+
+        switch (action) {
+            case PING:
+                message.reply(new JsonObject());
+                break;
+            case NEIGHBOURS:
+                textRepository.getLexicalNeighbours(body.getString("text"))
+                        .subscribe(n -> message.reply(new JsonObject()
+                                        .put("floor", n.getFloor())
+                                        .put("ceiling", n.getCeiling())),
+                                t -> fail(message, t));
+                break;
+            case CLOSEST_VALUE:
+                textRepository.getClosestValue(body.getInteger("value"))
+                        .subscribe(v -> message.reply(new JsonObject().put("value", v)),
+                                t -> fail(message, t),
+                                () -> message.reply(new JsonObject()));
+                break;
+            case TEXTS_WITH_VALUE:
+                textRepository.getTextsWithValue(body.getInteger("value"), body.getInteger("limit"))
+                        .subscribe(l -> message.reply(new JsonObject().put("texts", new JsonArray(l))),
+                                t -> fail(message, t));
+                break;
+            case LEXICAL_WINDOW:
+                textRepository.getLexicalWindow(body.getString("text"), body.getInteger("limit"))
+                        .subscribe(w -> message.reply(new JsonObject()
+                                        .put("below", new JsonArray(w.getBelow()))
+                                        .put("above", new JsonArray(w.getAbove()))),
+                                t -> fail(message, t));
+                break;
+            case CLOSEST_BY_VALUE:
+                textRepository.getClosestByValue(body.getInteger("value"), body.getInteger("limit"))
+                        .subscribe(l -> message.reply(new JsonObject().put("texts", new JsonArray(l.stream()
+                                        .map(ShardVerticle::toJson)
+                                        .collect(Collectors.toList())))),
+                                t -> fail(message, t));
+                break;
+            case SAVE:
+                reply(message, textRepository.saveText(fromJson(body)));
+                break;
+            case SAVE_ALL:
+                reply(message, textRepository.saveTexts(body.getJsonArray("texts").stream()
+                        .map(j -> fromJson((JsonObject) j))
+                        .collect(Collectors.toList())));
+                break;
+            case SNAPSHOT:
+                reply(message, textRepository.saveSnapshot());
+                break;
+            default:
+                message.fail(400, "Unknown action: " + action);
+        }
+    }
+
+    static JsonObject toJson(TextCache text) {
+        return new JsonObject()
+                .put("text", text.getText())
+                .put("charValue", text.getCharValue());
+    }
+
+    static TextCache fromJson(JsonObject json) {
+        return TextCache.of(json.getString("text"), json.getInteger("charValue"));
+    }
+
+    private static void reply(Message<JsonObject> message, Future<Void> future) {
+        future.onSuccess(v -> message.reply(new JsonObject()))
+                .onFailure(t -> fail(message, t));
+    }
+
+    private static void fail(Message<JsonObject> message, Throwable t) {
+        if (t instanceof OverloadedException) {
+            log.debug("Shard shed {}: {}", message.headers().get(ACTION), t.getMessage());
+            message.fail(OVERLOADED, ((OverloadedException) t).getReason());
+            return;
+        }
+
+        log.error("Shard could not handle {}", message.headers().get(ACTION), t);
+        message.fail(500, String.valueOf(t.getMessage()));
+    }
+}
@@ -0,0 +1,205 @@
+package com.exercise.interview.analyze;
+
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava3.SingleHelper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Repository spread over {@link ShardVerticle}s, possibly on other nodes of the cluster.
+ * Lookups are scattered to every shard and the per shard answers merged into the global one,
+ * so the service applies its usual tie breaking rules to the same neighbours as with a single index.
+ */
+@AllArgsConstructor
+@Slf4j
+public class ShardedTextRepository implements TextRepository {
+    private static final long RETRY_DELAY = 1000;
+
+    private final Vertx vertx;
+    private final int shards;
+    private final long timeout;
+
+    @Override
+    public Future<Void> loadTexts() {
+        Promise<Void> promise = Promise.promise();
+        awaitShards(promise);
+        return promise.future();
+    }
+
+    private void awaitShards(Promise<Void> promise) {
+        scatter(ShardVerticle.PING, new JsonObject())
+                .onSuccess(r -> {
+                    log.info("All {} shards are ready", shards);
+                    promise.complete();
+                })
+                .onFailure(t -> {
+                    log.info("Waiting for shards: {}", t.getMessage());
+                    vertx.setTimer(RETRY_DELAY, id -> awaitShards(promise));
+                });
+    }
+
+    @Override
+    public Future<Void> saveSnapshot() {
+        return scatter(ShardVerticle.SNAPSHOT, new JsonObject())
+                .mapEmpty();
+    }
+
+    @Override
+    public Single<LexicalNeighbours> getLexicalNeighbours(String text) {
+        return SingleHelper.toSingle(h -> scatter(ShardVerticle.NEIGHBOURS, new JsonObject().put("text", text))
+                .map(ShardedTextRepository::mergeNeighbours)
+                .onComplete(h));
+    }
+
+    @Override
+    public Single<LexicalWindow> getLexicalWindow(String text, int limit) {
+        return SingleHelper.toSingle(h -> scatter(ShardVerticle.LEXICAL_WINDOW,
+                        new JsonObject().put("text", text).put("limit", limit))
+                .map(r -> mergeWindow(r, limit))
+                .onComplete(h));
+    }
+
+    @Override
+    public Maybe<Integer> getClosestValue(int value) {
+        return SingleHelper.<Optional<Integer>>toSingle(h -> scatter(ShardVerticle.CLOSEST_VALUE, new JsonObject().put("value", value))
+                .map(r -> mergeClosestValue(value, r))
+                .onComplete(h))
+                .flatMapMaybe(Maybe::fromOptional);
+    }
+
+    @Override
+    public Single<List<String>> getTextsWithValue(int value, int limit) {
+        return SingleHelper.toSingle(h -> scatter(ShardVerticle.TEXTS_WITH_VALUE,
+                        new JsonObject().put("value", value).put("limit", limit))
+                .map(r -> mergeTexts(r, limit))
+                .onComplete(h));
+    }
+
+    @Override
+    public Single<List<TextCache>> getClosestByValue(int value, int limit) {
+        return SingleHelper.toSingle(h -> scatter(ShardVerticle.CLOSEST_BY_VALUE,
+                        new JsonObject().put("value", value).put("limit", limit))
+                .map(r -> mergeClosestByValue(value, r, limit))
+                .onComplete(h));
+    }
+
+    @Override
+    public Future<Void> saveText(TextCache text) {
+        return request(shardOf(text), ShardVerticle.SAVE, ShardVerticle.toJson(text))
+                .mapEmpty();
+    }
+
+    @Override
+    public Future<Void> saveTexts(List<TextCache> texts) {
+        Map<Integer, List<TextCache>> byShard = texts.stream()
+                .collect(Collectors.groupingBy(this::shardOf));
+
+        List<Future<JsonObject>> saves = byShard.entrySet().stream()
+                .map(e -> request(e.getKey(), ShardVerticle.SAVE_ALL, new JsonObject().put("texts",
+                        e.getValue().stream().map(ShardVerticle::toJson).collect(Collectors.toList()))))
+                .collect(Collectors.toList());
+
+        return Future.all(saves).mapEmpty();
+    }
+
+    @Override
+    public Future<Void> close() {
+        return Future.succeededFuture();
+    }
+
+    private int shardOf(TextCache text) {
+        return PartitionedTextIndex.partitionOf(text.getText(), shards);
+    }
+
+    private Future<List<JsonObject>> scatter(String action, JsonObject body) {
+        List<Future<JsonObject>> replies = IntStream.range(0, shards)
+                .mapToObj(s -> request(s, action, body))
+                .collect(Collectors.toList());
+
+        return Future.all(replies)
+                .map(c -> replies.stream().map(Future::result).collect(Collectors.toList()));
+    }
+
+    private Future<JsonObject> request(int shard, String action, JsonObject body) {
+        DeliveryOptions options = new DeliveryOptions()
+                .addHeader(ShardVerticle.ACTION, action)
+                .setSendTimeout(timeout);
+
+        return vertx.eventBus().<JsonObject>request(ShardVerticle.address(shard), body, options)
+                .map(Message::body)
+                .recover(t -> Future.failedFuture(overloaded(t) ?
+                        new OverloadedException(t.getMessage(), "Shed by shard " + shard) : t));
+    }
+
+    private static boolean overloaded(Throwable t) {
+        return t instanceof ReplyException && ((ReplyException) t).failureCode() == ShardVerticle.OVERLOADED;
+    }
+
+    private static LexicalNeighbours mergeNeighbours(List<JsonObject> replies) {
+        String floor = replies.stream()
+                .map(r -> r.getString("floor"))
+                .filter(Objects::nonNull)
+                .max(String.CASE_INSENSITIVE_ORDER)
+                .orElse(null);
+        String ceiling = replies.stream()
+                .map(r -> r.getString("ceiling"))
+                .filter(Objects::nonNull)
+                .min(String.CASE_INSENSITIVE_ORDER)
+                .orElse(null);
+
+        return LexicalNeighbours.of(floor, ceiling);
+    }
+
+    private static Optional<Integer> mergeClosestValue(int value, List<JsonObject> replies) {
+        return replies.stream()
+                .map(r -> r.getInteger("value"))
+                .filter(Objects::nonNull)
+                .min(Comparator.<Integer>comparingLong(v -> Math.abs((long) v - value))
+                        .thenComparing(Comparator.reverseOrder()));
+    }
+
+    private static List<String> mergeTexts(List<JsonObject> replies, int limit) {
+        return merge(replies, "texts", String.CASE_INSENSITIVE_ORDER, limit);
+    }
+
+    private static LexicalWindow mergeWindow(List<JsonObject> replies, int limit) {
+        return LexicalWindow.of(merge(replies, "below", String.CASE_INSENSITIVE_ORDER.reversed(), limit),
+                merge(replies, "above", String.CASE_INSENSITIVE_ORDER, limit));
+    }
+
+    private static List<String> merge(List<JsonObject> replies, String key, Comparator<String> order, int limit) {
+        return replies.stream()
+                .flatMap(r -> r.getJsonArray(key).stream())
+                .map(String.class::cast)
+                .sorted(order)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static List<TextCache> mergeClosestByValue(int value, List<JsonObject> replies, int limit) {
+        return replies.stream()
+                .flatMap(r -> r.getJsonArray("texts").stream())
+                .map(j -> ShardVerticle.fromJson((JsonObject) j))
+                .sorted(Comparator.<TextCache>comparingLong(t -> Math.abs((long) t.getCharValue() - value))
+                        .thenComparing(TextCache::getCharValue, Comparator.reverseOrder())
+                        .thenComparing(TextCache::getText, String.CASE_INSENSITIVE_ORDER))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,49 @@
+package com.exercise.interview.analyze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+public class SkipListLexicalIndex implements LexicalIndex {
+    private final NavigableSet<String> textOrdered = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    @Override
+    public boolean add(String text) {
+        return textOrdered.add(text);
+    }
+
+    @Override
+    public boolean contains(String text) {
+        return textOrdered.contains(text);
+    }
+
+    @Override
+    public void clear() {
+        textOrdered.clear();
+    }
+
+    @Override
+    public LexicalNeighbours neighbours(String text) {
+        return LexicalNeighbours.of(textOrdered.floor(text), textOrdered.ceiling(text));
+    }
+
+    @Override
+    public List<String> below(String text, int limit) {
+        return first(textOrdered.headSet(text, true).descendingSet(), limit);
+    }
+
+    @Override
+    public List<String> above(String text, int limit) {
+        return first(textOrdered.tailSet(text, false), limit);
+    }
+
+    private static List<String> first(Iterable<String> texts, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (String text : texts) {
+            if (result.size() >= limit) break;
+            result.add(text);
+        }
+        return result;
+    }
+}
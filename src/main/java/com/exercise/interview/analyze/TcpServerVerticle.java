@@ -0,0 +1,111 @@
+package com.exercise.interview.analyze;
+
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.rxjava3.RxHelper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves {@link BinaryProtocol} frames with the same service and admission control as the HTTP servers.
+ * A connection stops being read while it has too many requests in progress or its write queue is full.
+ */
+@AllArgsConstructor
+@Slf4j
+public class TcpServerVerticle extends AbstractVerticle {
+    private final AnalyzeService analyzeService;
+    private final AnalyzeMetrics metrics;
+    private final AdmissionControl admissionControl;
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        int port = config().getInteger("TCP_PORT");
+        int maxPipelined = Math.max(1, config().getInteger("TCP_MAX_PIPELINED", 256));
+
+        vertx.createNetServer()
+                .connectHandler(socket -> new Connection(socket, maxPipelined))
+                .listen(port)
+                .onSuccess(server -> log.info("TCP server started on port " + port))
+                .<Void>mapEmpty()
+                .onComplete(startPromise);
+    }
+
+    private class Connection {
+        private final NetSocket socket;
+        private final int maxPipelined;
+        private final RecordParser frames;
+        private int pending;
+        private boolean paused;
+
+        private Connection(NetSocket socket, int maxPipelined) {
+            this.socket = socket;
+            this.maxPipelined = maxPipelined;
+            this.frames = BinaryProtocol.frames(socket, this::handleFrame, this::handleInvalidFrame);
+            frames.exceptionHandler(t -> log.debug("TCP connection failed", t));
+            socket.drainHandler(v -> updateFlow());
+        }
+
+        private void handleFrame(Buffer frame) {
+            int id = BinaryProtocol.id(frame);
+            if (BinaryProtocol.code(frame) != BinaryProtocol.ANALYZE) {
+                socket.write(BinaryProtocol.failure(id, BinaryProtocol.INVALID,
+                        "Unknown request: " + BinaryProtocol.code(frame)));
+                return;
+            }
+
+            try {
+                admissionControl.acquire();
+            } catch (OverloadedException e) {
+                log.debug("Shed request: {}", e.getMessage());
+                metrics.shed(e);
+                socket.write(BinaryProtocol.failure(id, BinaryProtocol.OVERLOADED, e.getReason()));
+                return;
+            }
+
+            String text = BinaryProtocol.message(frame);
+            log.debug("Handling analyzing of text: {}", text);
+            pending++;
+            updateFlow();
+
+            Single.defer(() -> analyzeService.analyze(text))
+                    .doFinally(admissionControl::release)
+                    .observeOn(RxHelper.scheduler(context))
+                    .subscribe(r -> respond(BinaryProtocol.response(id, r)), t -> respond(failure(id, t)));
+        }
+
+        private Buffer failure(int id, Throwable t) {
+            if (t instanceof OverloadedException) {
+                metrics.shed((OverloadedException) t);
+                return BinaryProtocol.failure(id, BinaryProtocol.OVERLOADED, ((OverloadedException) t).getReason());
+            }
+            if (t instanceof InvalidRequestException) {
+                return BinaryProtocol.failure(id, BinaryProtocol.INVALID, t.getMessage());
+            }
+
+            log.error("Could not analyze text", t);
+            return BinaryProtocol.failure(id, BinaryProtocol.ERROR, t.getMessage());
+        }
+
+        private void respond(Buffer response) {
+            pending--;
+            socket.write(response);
+            updateFlow();
+        }
+
+        private void handleInvalidFrame(Throwable t) {
+            log.debug("Closing TCP connection: {}", t.getMessage());
+            socket.close();
+        }
+
+        private void updateFlow() {
+            boolean full = pending >= maxPipelined || socket.writeQueueFull();
+            if (full && !paused) frames.pause();
+            else if (!full && paused) frames.resume();
+            paused = full;
+        }
+    }
+}
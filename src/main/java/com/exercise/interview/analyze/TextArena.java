@@ -0,0 +1,157 @@
+package com.exercise.interview.analyze;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Append only off-heap storage of texts and their char values, addressed by int handles.
+ * Texts made only of Latin-1 chars take one byte per char, other texts two. The budget is spent in chunks of
+ * {@link #CHUNK_SIZE} bytes, a text larger than a chunk is never stored.
+ */
+public class TextArena {
+    public static final int FULL = -1;
+    public static final int TOO_LARGE = -2;
+
+    private static final int CHUNK_BITS = 20;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int OFFSET_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final long budget;
+    private final ByteBuffer[] chunks = new ByteBuffer[MAX_CHUNKS];
+    private int chunkCount;
+    private int position = CHUNK_SIZE;
+    private long allocated;
+
+    public TextArena(long budget) {
+        if (budget < CHUNK_SIZE) {
+            throw new IllegalArgumentException("Arena budget of " + budget + " bytes is below a chunk of "
+                    + CHUNK_SIZE + " bytes");
+        }
+        this.budget = budget;
+    }
+
+    public synchronized int append(TextCache text) {
+        String s = text.getText();
+        boolean latin1 = isLatin1(s);
+        int size = HEADER_SIZE + (latin1 ? s.length() : 2 * s.length());
+
+        if (size > CHUNK_SIZE) return TOO_LARGE;
+        if (position + size > CHUNK_SIZE && !allocateChunk()) return FULL;
+
+        ByteBuffer chunk = chunks[chunkCount - 1];
+        int offset = position;
+        chunk.putInt(offset, s.length() << 1 | (latin1 ? 1 : 0));
+        chunk.putInt(offset + Integer.BYTES, text.getCharValue());
+        int at = offset + HEADER_SIZE;
+        for (int i = 0; i < s.length(); i++) {
+            if (latin1) chunk.put(at++, (byte) s.charAt(i));
+            else {
+                chunk.putChar(at, s.charAt(i));
+                at += 2;
+            }
+        }
+        position = at;
+
+        return (chunkCount - 1) << CHUNK_BITS | offset;
+    }
+
+    public long allocatedBytes() {
+        return allocated;
+    }
+
+    public String text(int handle) {
+        ByteBuffer chunk = chunks[handle >>> CHUNK_BITS];
+        int offset = handle & OFFSET_MASK;
+        int header = chunk.getInt(offset);
+        int length = header >>> 1;
+        int at = offset + HEADER_SIZE;
+
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (header & 1) != 0 ? (char) (chunk.get(at + i) & 0xFF) : chunk.getChar(at + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    public int charValue(int handle) {
+        return chunks[handle >>> CHUNK_BITS].getInt((handle & OFFSET_MASK) + Integer.BYTES);
+    }
+
+    /**
+     * Compares the stored text with the given one in {@link String#CASE_INSENSITIVE_ORDER}.
+     */
+    public int compare(int handle, String other) {
+        ByteBuffer chunk = chunks[handle >>> CHUNK_BITS];
+        int offset = handle & OFFSET_MASK;
+        int header = chunk.getInt(offset);
+        if ((header & 1) == 0) return String.CASE_INSENSITIVE_ORDER.compare(text(handle), other);
+
+        int length = header >>> 1;
+        int at = offset + HEADER_SIZE;
+        int min = Math.min(length, other.length());
+        for (int i = 0; i < min; i++) {
+            char c1 = (char) (chunk.get(at + i) & 0xFF);
+            char c2 = other.charAt(i);
+            if (c2 > 0xFF) return String.CASE_INSENSITIVE_ORDER.compare(text(handle), other);
+            if (c1 == c2) continue;
+
+            c1 = Character.toUpperCase(c1);
+            c2 = Character.toUpperCase(c2);
+            if (c1 == c2) continue;
+
+            c1 = Character.toLowerCase(c1);
+            c2 = Character.toLowerCase(c2);
+            if (c1 != c2) return c1 - c2;
+        }
+
+        return length - other.length();
+    }
+
+    public int compare(int lhs, int rhs) {
+        if (lhs == rhs) return 0;
+
+        ByteBuffer lhsChunk = chunks[lhs >>> CHUNK_BITS];
+        ByteBuffer rhsChunk = chunks[rhs >>> CHUNK_BITS];
+        int lhsHeader = lhsChunk.getInt(lhs & OFFSET_MASK);
+        int rhsHeader = rhsChunk.getInt(rhs & OFFSET_MASK);
+        if ((lhsHeader & rhsHeader & 1) == 0) return String.CASE_INSENSITIVE_ORDER.compare(text(lhs), text(rhs));
+
+        int lhsLength = lhsHeader >>> 1;
+        int rhsLength = rhsHeader >>> 1;
+        int lhsAt = (lhs & OFFSET_MASK) + HEADER_SIZE;
+        int rhsAt = (rhs & OFFSET_MASK) + HEADER_SIZE;
+        int min = Math.min(lhsLength, rhsLength);
+        for (int i = 0; i < min; i++) {
+            char c1 = (char) (lhsChunk.get(lhsAt + i) & 0xFF);
+            char c2 = (char) (rhsChunk.get(rhsAt + i) & 0xFF);
+            if (c1 == c2) continue;
+
+            c1 = Character.toUpperCase(c1);
+            c2 = Character.toUpperCase(c2);
+            if (c1 == c2) continue;
+
+            c1 = Character.toLowerCase(c1);
+            c2 = Character.toLowerCase(c2);
+            if (c1 != c2) return c1 - c2;
+        }
+
+        return lhsLength - rhsLength;
+    }
+
+    private boolean allocateChunk() {
+        if (chunkCount == MAX_CHUNKS || allocated + CHUNK_SIZE > budget) return false;
+
+        chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        allocated += CHUNK_SIZE;
+        position = 0;
+        return true;
+    }
+
+    private static boolean isLatin1(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,171 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the caches of instances sharing a database coherent over the clustered event bus. The texts this instance
+ * stored are published in batches numbered by a sequence of the instance, and the batches of the other instances are
+ * cached as they arrive. Published messages are not redelivered, so a skipped number, also noticed through the
+ * heartbeats repeating the last number, is filled by loading the texts stored after the watermark of the repository.
+ */
+@Slf4j
+public class TextChangeFeed {
+    static final String ADDRESS = "analyze.texts.changes";
+
+    private final Vertx vertx;
+    private final String node = UUID.randomUUID().toString();
+    private final int batchSize;
+    private final long flushInterval;
+    private final long heartbeatInterval;
+    private final List<TextCache> stored = new ArrayList<>();
+    private long sequence;
+    private boolean published;
+
+    private TextRepositoryImpl repository;
+    private MessageConsumer<JsonObject> consumer;
+    private final List<Long> timerIds = new ArrayList<>();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private boolean loading;
+    private boolean reload;
+
+    private final LongAdder publishedTexts = new LongAdder();
+    private final LongAdder appliedTexts = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+
+    public TextChangeFeed(Vertx vertx, int batchSize, long flushInterval, long heartbeatInterval) {
+        this.vertx = vertx;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public long publishedTexts() {
+        return publishedTexts.sum();
+    }
+
+    public long appliedTexts() {
+        return appliedTexts.sum();
+    }
+
+    /**
+     * Gaps in the sequence of another instance, each filled by loading the texts stored after the watermark.
+     */
+    public long gaps() {
+        return gaps.sum();
+    }
+
+    /**
+     * Starts caching the texts published by the other instances in the repository, once it is loaded, and
+     * publishing the texts stored by this one.
+     */
+    public Future<Void> start(TextRepositoryImpl repository) {
+        this.repository = repository;
+        consumer = vertx.eventBus().<JsonObject>consumer(ADDRESS, m -> receive(m.body()));
+        timerIds.add(vertx.setPeriodic(flushInterval, id -> flush()));
+        timerIds.add(vertx.setPeriodic(heartbeatInterval, id -> heartbeat()));
+        log.info("Publishing changes as {}", node);
+
+        Promise<Void> registered = Promise.promise();
+        consumer.completionHandler(registered);
+        return registered.future();
+    }
+
+    /**
+     * Queues texts once stored to be published with the next batch.
+     */
+    public synchronized void stored(List<TextCache> texts) {
+        stored.addAll(texts);
+        if (stored.size() >= batchSize) flush();
+    }
+
+    public Future<Void> close() {
+        timerIds.forEach(vertx::cancelTimer);
+        flush();
+        return consumer == null ? Future.succeededFuture() : consumer.unregister();
+    }
+
+    synchronized void flush() {
+        for (int from = 0; from < stored.size(); from += batchSize) {
+            List<TextCache> batch = stored.subList(from, Math.min(stored.size(), from + batchSize));
+            JsonArray texts = new JsonArray(new ArrayList<>(batch.size()));
+            batch.forEach(t -> texts.add(ShardVerticle.toJson(t)));
+
+            vertx.eventBus().publish(ADDRESS, message(++sequence).put("texts", texts));
+            publishedTexts.add(batch.size());
+            published = true;
+        }
+        stored.clear();
+    }
+
+    private synchronized void heartbeat() {
+        if (!published) vertx.eventBus().publish(ADDRESS, message(sequence));
+        published = false;
+    }
+
+    private JsonObject message(long sequence) {
+        return new JsonObject()
+                .put("node", node)
+                .put("sequence", sequence);
+    }
+
+    /**
+     * Runs on the context that started the feed. A batch following the last one seen of its instance is cached, and
+     * so is any other batch, but one past the next number, or a heartbeat past the last one, starts a delta load.
+     * The first message of an instance is a gap unless it is its first batch, since this instance may have loaded
+     * its texts after earlier batches were published.
+     */
+    private void receive(JsonObject body) {
+        String from = body.getString("node");
+        if (node.equals(from)) return;
+
+        long received = body.getLong("sequence");
+        long last = sequences.getOrDefault(from, 0L);
+        JsonArray texts = body.getJsonArray("texts");
+
+        if (texts != null) {
+            List<TextCache> changes = new ArrayList<>(texts.size());
+            texts.forEach(j -> changes.add(ShardVerticle.fromJson((JsonObject) j)));
+            repository.applyChanges(changes);
+            appliedTexts.add(changes.size());
+        }
+
+        long lastMissed = texts == null ? received : received - 1;
+        if (lastMissed > last) {
+            log.warn("Missed changes {} to {} of {}, loading the texts stored since", last + 1, lastMissed, from);
+            gaps.increment();
+            loadChanges();
+        }
+        sequences.put(from, Math.max(last, received));
+    }
+
+    private void loadChanges() {
+        if (loading) {
+            reload = true;
+            return;
+        }
+
+        loading = true;
+        repository.loadChanges()
+                .onFailure(t -> log.error("Could not load missed changes", t))
+                .onComplete(r -> {
+                    loading = false;
+                    if (reload) {
+                        reload = false;
+                        loadChanges();
+                    }
+                });
+    }
+}
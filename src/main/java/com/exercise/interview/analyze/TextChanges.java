@@ -0,0 +1,16 @@
+package com.exercise.interview.analyze;
+
+import java.util.function.Predicate;
+
+/**
+ * Versions of the cached texts, telling which texts were added between two of them while those are recent.
+ */
+public interface TextChanges {
+    long epoch();
+
+    /**
+     * Whether a text added after the since epoch, up to the until one, matches the predicate. Also true when those
+     * texts are not all known.
+     */
+    boolean anyAdded(long since, long until, Predicate<TextCache> predicate);
+}
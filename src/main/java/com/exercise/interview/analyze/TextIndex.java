@@ -0,0 +1,68 @@
+package com.exercise.interview.analyze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TextIndex {
+    boolean add(TextCache text);
+
+    /**
+     * Adds texts given in {@link String#CASE_INSENSITIVE_ORDER} without duplicates, returning how many were new.
+     */
+    default int addAll(List<TextCache> sortedTexts) {
+        int added = 0;
+        for (TextCache text : sortedTexts) {
+            if (add(text)) added++;
+        }
+        return added;
+    }
+
+    boolean contains(String text);
+
+    int size();
+
+    void clear();
+
+    LexicalNeighbours lexicalNeighbours(String text);
+
+    /**
+     * Up to limit texts lower than or equal to the given one in {@link String#CASE_INSENSITIVE_ORDER}, the closest
+     * first.
+     */
+    List<String> lexicalBelow(String text, int limit);
+
+    /**
+     * Up to limit texts greater than the given one in {@link String#CASE_INSENSITIVE_ORDER}, the closest first.
+     */
+    List<String> lexicalAbove(String text, int limit);
+
+    long closestValue(int value);
+
+    /**
+     * Up to limit char values by distance to the given one, the higher value first on ties.
+     */
+    int[] closestValues(int value, int limit);
+
+    List<String> textsWithValue(int value);
+
+    /**
+     * The first limit texts with the char value, in {@link String#CASE_INSENSITIVE_ORDER}.
+     */
+    List<String> textsWithValue(int value, int limit);
+
+    /**
+     * Up to limit texts by distance of their char value to the given one, the higher value first on ties and the
+     * texts of a value in {@link String#CASE_INSENSITIVE_ORDER}, only reading the values and texts it returns.
+     */
+    default List<TextCache> closestByValue(int value, int limit) {
+        List<TextCache> result = new ArrayList<>(Math.min(limit, 16));
+        for (int closest : closestValues(value, limit)) {
+            for (String text : textsWithValue(closest, limit - result.size())) result.add(TextCache.of(text, closest));
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    void forEach(Consumer<TextCache> consumer);
+}
@@ -0,0 +1,125 @@
+package com.exercise.interview.analyze;
+
+/**
+ * Char value scoring and lexical distance comparison working on blocks of four UTF-16 chars packed in a long.
+ * Blocks of ASCII chars are validated, lower cased and summed at once, any other block goes through the scalar
+ * {@link Character} path, so results are the same as char by char, Unicode letters included.
+ */
+final class TextKernel {
+    private static final int LANES = 4;
+    private static final long ONES = 0x0001_0001_0001_0001L;
+    private static final long NON_ASCII = 0xFF80 * ONES;
+    private static final long HIGH_BITS = 0x0080 * ONES;
+
+    private TextKernel() {
+    }
+
+    /**
+     * Sum of the positions in the alphabet of the lower cased letters of the text.
+     *
+     * @throws InvalidRequestException on the first char that is not a letter
+     */
+    static int charValue(String text) {
+        int length = text.length();
+        int result = 0;
+        int i = 0;
+
+        for (; i + LANES <= length; i += LANES) {
+            long block = block(text, i);
+            if ((block & NON_ASCII) == 0) {
+                long folded = block | 0x0020 * ONES;
+                if (inRange(folded, 'a', 'z') == HIGH_BITS) {
+                    result += (int) (((folded - 0x0060 * ONES) * ONES) >>> 48);
+                    continue;
+                }
+            }
+            for (int j = i; j < i + LANES; j++) result += charValue(text, j);
+        }
+        for (; i < length; i++) result += charValue(text, i);
+
+        return result;
+    }
+
+    /**
+     * Whether the distances of the lower cased chars of the text to the ones of lhs are lexicographically lower
+     * than to the ones of rhs, comparing as many chars as the shortest of the three has.
+     */
+    static boolean isCloser(String text, String lhs, String rhs) {
+        int length = Math.min(text.length(), Math.min(lhs.length(), rhs.length()));
+        int i = 0;
+
+        for (; i + LANES <= length; i += LANES) {
+            long lhsBlock = block(lhs, i);
+            long rhsBlock = block(rhs, i);
+            if (((lhsBlock | rhsBlock) & NON_ASCII) == 0 && toLowerCase(lhsBlock) == toLowerCase(rhsBlock)) continue;
+
+            for (int j = i; j < i + LANES; j++) {
+                int comparison = compareDistance(text, lhs, rhs, j);
+                if (comparison != 0) return comparison < 0;
+            }
+        }
+        for (; i < length; i++) {
+            int comparison = compareDistance(text, lhs, rhs, i);
+            if (comparison != 0) return comparison < 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * The text itself when no char changes with {@link Character#toLowerCase(char)}, else a lower cased copy.
+     */
+    static String foldCase(String text) {
+        int length = text.length();
+        int i = 0;
+        for (; i + LANES <= length; i += LANES) {
+            long block = block(text, i);
+            if ((block & NON_ASCII) != 0 || toLowerCase(block) != block) break;
+        }
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.toLowerCase(c) != c) return lowerCase(text, i);
+        }
+        return text;
+    }
+
+    private static String lowerCase(String text, int from) {
+        char[] chars = new char[text.length()];
+        text.getChars(0, from, chars, 0);
+        for (int i = from; i < chars.length; i++) chars[i] = Character.toLowerCase(text.charAt(i));
+        return new String(chars);
+    }
+
+    private static int charValue(String text, int index) {
+        char c = text.charAt(index);
+        if (!Character.isLetter(c)) throw new InvalidRequestException("Invalid character " + c + " on text: " + text);
+        return Character.compare(Character.toLowerCase(c), 'a') + 1;
+    }
+
+    private static int compareDistance(String text, String lhs, String rhs, int index) {
+        char c = Character.toLowerCase(text.charAt(index));
+        return Integer.compare(Math.abs(c - Character.toLowerCase(lhs.charAt(index))),
+                Math.abs(c - Character.toLowerCase(rhs.charAt(index))));
+    }
+
+    private static long block(String text, int index) {
+        return text.charAt(index)
+                | (long) text.charAt(index + 1) << 16
+                | (long) text.charAt(index + 2) << 32
+                | (long) text.charAt(index + 3) << 48;
+    }
+
+    /**
+     * The high bit of each lane of an ASCII block set when the lane is between from and to, inclusive.
+     * Lanes are below 0x80 so the additions never carry into the next lane.
+     */
+    private static long inRange(long block, char from, char to) {
+        long atLeastFrom = block + (0x80 - from) * ONES;
+        long aboveTo = block + (0x7F - to) * ONES;
+        return atLeastFrom & ~aboveTo & HIGH_BITS;
+    }
+
+    private static long toLowerCase(long asciiBlock) {
+        return asciiBlock | inRange(asciiBlock, 'A', 'Z') >>> 2;
+    }
+}
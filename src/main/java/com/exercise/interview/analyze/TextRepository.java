@@ -1,5 +1,6 @@
 package com.exercise.interview.analyze;
 
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
 import io.vertx.core.Future;
 
@@ -8,11 +9,21 @@ import java.util.List;
 public interface TextRepository {
     Future<Void> loadTexts();
 
-    Single<List<String>> getOrderedText();
+    Future<Void> saveSnapshot();
 
-    Single<List<Integer>> getOrderedValue();
+    Single<LexicalNeighbours> getLexicalNeighbours(String text);
 
-    Single<List<String>> getTextsWithValue(int value);
+    Single<LexicalWindow> getLexicalWindow(String text, int limit);
+
+    Maybe<Integer> getClosestValue(int value);
+
+    Single<List<String>> getTextsWithValue(int value, int limit);
+
+    Single<List<TextCache>> getClosestByValue(int value, int limit);
 
     Future<Void> saveText(TextCache text);
+
+    Future<Void> saveTexts(List<TextCache> texts);
+
+    Future<Void> close();
 }
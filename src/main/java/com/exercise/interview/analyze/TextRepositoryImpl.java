@@ -1,130 +1,290 @@
 package com.exercise.interview.analyze;
 
-import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
-import io.vertx.sqlclient.Row;
-import io.vertx.sqlclient.RowSet;
-import io.vertx.sqlclient.SqlClient;
-import io.vertx.sqlclient.Tuple;
 import lombok.AllArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
 @AllArgsConstructor
 @Slf4j
-public class TextRepositoryImpl implements TextRepository {
-    private final SqlClient sqlClient;
-    private final Set<Integer> valueOrdered = new ConcurrentSkipListSet<>();
-    private final Map<Integer, Set<String>> valueTextMap = new ConcurrentHashMap<>();
-    private final Set<String> textOrdered = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+public class TextRepositoryImpl implements TextRepository, TextChanges {
+    static final int RECENT_TEXTS = 256;
 
+    private final TextStore textStore;
+    private final TextSnapshot textSnapshot;
+    private final TextIndex textIndex;
+    private final AtomicLong watermark = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicReferenceArray<AddedText> recentTexts = new AtomicReferenceArray<>(RECENT_TEXTS);
+    private final ConcurrentMap<String, Future<Void>> pendingSaves = new ConcurrentHashMap<>();
+    private final LongAdder coalescedSaves = new LongAdder();
+
+    /**
+     * Version of the cached texts, increased after every text added to them or when they are cleared.
+     */
     @Override
-    public Future<Void> loadTexts() {
-        return createTableFuture()
-                .flatMap(v -> setCacheFuture());
+    public long epoch() {
+        return epoch.get();
     }
 
-    private Future<Void> createTableFuture() {
-        return sqlClient.query(
-            "CREATE TABLE IF NOT EXISTS Texts (txt TEXT NOT NULL PRIMARY KEY, value INT NOT NULL)")
-            .execute()
-            .onComplete(s -> log.info("Created table"))
-            .mapEmpty();
+    /**
+     * Looks through the last {@link #RECENT_TEXTS} texts added, each in the slot of its epoch. An epoch whose slot
+     * holds another one, or no text as the cache was cleared or texts were imported at once, counts as a match.
+     */
+    @Override
+    public boolean anyAdded(long since, long until, Predicate<TextCache> predicate) {
+        if (until - since > RECENT_TEXTS) return true;
+
+        for (long e = since + 1; e <= until; e++) {
+            AddedText added = recentTexts.get((int) (e % RECENT_TEXTS));
+            boolean known = added != null && added.getEpoch() == e && added.getText() != null;
+            if (!known || predicate.test(added.getText())) return true;
+        }
+        return false;
     }
 
-    private Future<Void> setCacheFuture() {
-        return sqlClient.query("SELECT txt, value FROM Texts")
-            .execute()
-            .flatMap(this::fromRows)
-            .onFailure(t -> log.error("Could not load texts", t));
+    private void changed(TextCache text) {
+        long e = epoch.incrementAndGet();
+        recentTexts.set((int) (e % RECENT_TEXTS), AddedText.of(e, text));
     }
 
-    private Future<Void> fromRows(RowSet<Row> rows) {
-        return Future.future(p -> setCache(p, rows));
+    /**
+     * Saves that joined a save of the same text already in progress instead of writing it again.
+     */
+    public long coalescedSaves() {
+        return coalescedSaves.sum();
     }
 
-    private void setCache(Promise<Void> promise, RowSet<Row> rows) {
-        Completable.fromAction(() -> setCache(rows))
-                .subscribeOn(Schedulers.computation())
-                .subscribe(promise::complete, promise::fail);
+    @Override
+    public Future<Void> loadTexts() {
+        return textStore.open()
+                .flatMap(v -> loadSnapshot())
+                .flatMap(v -> loadNewTexts())
+                .onSuccess(v -> log.info("Cache loaded with {} texts", textIndex.size()))
+                .onFailure(t -> log.error("Could not load texts", t));
     }
 
-    private void setCache(RowSet<Row> rows) {
+    @Override
+    public Future<Void> saveSnapshot() {
+        return loadNewTexts()
+                .flatMap(v -> textSnapshot.save(watermark.get(), textIndex))
+                .onFailure(t -> log.error("Could not save snapshot", t));
+    }
+
+    private Future<Void> loadSnapshot() {
         log.info("Clearing cache");
 
-        valueOrdered.clear();
-        textOrdered.clear();
+        clearCache();
 
-        rows.forEach(this::fromRow);
+        return textSnapshot.load(this::addToIndex)
+            .onSuccess(watermark::set)
+            .<Void>mapEmpty()
+            .recover(t -> {
+                log.warn("Could not load snapshot, loading every text", t);
+                clearCache();
+                return Future.succeededFuture();
+            });
+    }
 
-        log.info("Cache loaded");
+    private void clearCache() {
+        watermark.set(0);
+        textIndex.clear();
+        changed(null);
     }
 
-    private void fromRow(Row row) {
-        String text = row.getString("txt");
-        int charValue = row.getInteger("value");
-        TextCache textCache = TextCache.of(text, charValue);
-        cacheText(textCache);
-        textOrdered.add(text);
+    private void addToIndex(TextCache text) {
+        if (textIndex.add(text)) changed(text);
     }
 
-    private void cacheText(TextCache textCache) {
-        valueOrdered.add(textCache.getCharValue());
-        valueTextMap.putIfAbsent(textCache.getCharValue(), new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER));
-        valueTextMap.get(textCache.getCharValue()).add(textCache.getText());
+    private Future<Void> loadNewTexts() {
+        log.info("Loading texts after watermark {}", watermark.get());
+
+        return textStore.load(watermark.get(), (text, id) -> {
+            addToIndex(text);
+            watermark.accumulateAndGet(id, Math::max);
+        });
     }
 
+    /**
+     * Caches texts another instance stored, without storing them again.
+     */
+    public void applyChanges(List<TextCache> texts) {
+        texts.forEach(this::addToIndex);
+    }
+
+    /**
+     * Caches the texts stored after the watermark, by this instance or others, advancing the watermark.
+     */
+    public Future<Void> loadChanges() {
+        return loadNewTexts();
+    }
+
+    @Override
+    public Single<LexicalNeighbours> getLexicalNeighbours(String text) {
+        return Single.fromCallable(() -> textIndex.lexicalNeighbours(text));
+    }
+
+    @Override
+    public Single<LexicalWindow> getLexicalWindow(String text, int limit) {
+        return Single.fromCallable(() -> LexicalWindow.of(textIndex.lexicalBelow(text, limit),
+                textIndex.lexicalAbove(text, limit)));
+    }
 
     @Override
-    public Single<List<String>> getOrderedText() {
-        return Single.<List<String>>fromCallable(() -> new ArrayList<>(textOrdered))
-                .subscribeOn(Schedulers.computation());
+    public Maybe<Integer> getClosestValue(int value) {
+        return Maybe.fromCallable(() -> {
+            long closest = textIndex.closestValue(value);
+            return closest == ValueIndex.NONE ? null : (int) closest;
+        });
     }
 
     @Override
-    public Single<List<Integer>> getOrderedValue() {
-        return Single.<List<Integer>>fromCallable(() -> new ArrayList<>(valueOrdered))
-                .subscribeOn(Schedulers.computation());
+    public Single<List<String>> getTextsWithValue(int value, int limit) {
+        return Single.fromCallable(() -> textIndex.textsWithValue(value, limit));
     }
 
     @Override
-    public Single<List<String>> getTextsWithValue(int value) {
-        return Single.<List<String>>fromCallable(() -> new ArrayList<>(valueTextMap.get(value)))
-                .subscribeOn(Schedulers.computation());
+    public Single<List<TextCache>> getClosestByValue(int value, int limit) {
+        return Single.fromCallable(() -> textIndex.closestByValue(value, limit));
     }
 
     @Override
     public Future<Void> saveText(TextCache text) {
-        Promise<Void> promise = Promise.promise();
-        if (!textOrdered.contains(text.getText())) {
-            log.debug("Saving text: {}", text);
-            sqlClient.preparedQuery("INSERT INTO Texts (txt, value) VALUES ($1, $2)")
-                .execute(Tuple.of(text.getText(), text.getCharValue()))
-                .onComplete(ar -> {
-                    if (ar.succeeded()) {
-                        log.debug("Saved text: {}", text);
-                        cacheText(text);
-                        textOrdered.add(text.getText());
-                        promise.complete();
-                    } else {
-                        log.debug("Could not save text: {}", text);
-                        promise.fail(ar.cause());
-                    }
-                });
-        } else {
+        if (textIndex.contains(text.getText())) {
             log.debug("Text already saved: {}", text);
-            promise.complete();
+            return Future.succeededFuture();
         }
 
+        String key = AnalyzeServiceImpl.foldCase(text.getText());
+        Promise<Void> promise = Promise.promise();
+        Future<Void> pending = pendingSaves.putIfAbsent(key, promise.future());
+        if (pending != null) {
+            log.debug("Text already being saved: {}", text);
+            coalescedSaves.increment();
+            return pending;
+        }
+
+        log.debug("Saving text: {}", text);
+        textStore.write(text)
+                .onSuccess(v -> {
+                    log.debug("Saved text: {}", text);
+                    addToIndex(text);
+                })
+                .onFailure(t -> log.debug("Could not save text: {}", text))
+                .onComplete(r -> {
+                    pendingSaves.remove(key);
+                    promise.handle(r);
+                });
         return promise.future();
     }
+
+    /**
+     * Writes the texts neither cached nor being saved in one batch, joining the saves in progress of the others.
+     */
+    @Override
+    public Future<Void> saveTexts(List<TextCache> texts) {
+        Promise<Void> promise = Promise.promise();
+        Map<String, TextCache> newTexts = new LinkedHashMap<>();
+        List<Future<Void>> saves = new ArrayList<>();
+        saves.add(promise.future());
+
+        for (TextCache text : texts) {
+            String key = AnalyzeServiceImpl.foldCase(text.getText());
+            if (newTexts.containsKey(key) || textIndex.contains(text.getText())) continue;
+
+            Future<Void> pending = pendingSaves.putIfAbsent(key, promise.future());
+            if (pending == null) {
+                newTexts.put(key, text);
+            } else {
+                coalescedSaves.increment();
+                saves.add(pending);
+            }
+        }
+
+        log.debug("Saving {} texts", newTexts.size());
+        textStore.writeAll(new ArrayList<>(newTexts.values()))
+                .onSuccess(v -> newTexts.values().forEach(this::addToIndex))
+                .onFailure(t -> log.debug("Could not save {} texts", newTexts.size()))
+                .onComplete(r -> {
+                    newTexts.keySet().forEach(pendingSaves::remove);
+                    promise.handle(r);
+                });
+        return Future.all(saves).mapEmpty();
+    }
+
+    /**
+     * Writes the texts neither cached nor being saved in batches one after the other, adding each batch to the index
+     * once written, so a failed batch leaves the ones before it cached. Saves of the same texts during the import join
+     * the write of their batch. The texts are given in {@link String#CASE_INSENSITIVE_ORDER} without duplicates.
+     * Returns how many were cached.
+     */
+    public Future<Integer> importTexts(List<TextCache> sortedTexts, int batchSize) {
+        List<List<TextCache>> batches = new ArrayList<>();
+        List<Promise<Void>> promises = new ArrayList<>();
+        List<TextCache> batch = new ArrayList<>();
+        Promise<Void> promise = Promise.promise();
+        for (TextCache text : sortedTexts) {
+            if (textIndex.contains(text.getText())) continue;
+            if (pendingSaves.putIfAbsent(AnalyzeServiceImpl.foldCase(text.getText()), promise.future()) != null) {
+                coalescedSaves.increment();
+                continue;
+            }
+
+            batch.add(text);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                promises.add(promise);
+                batch = new ArrayList<>();
+                promise = Promise.promise();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+            promises.add(promise);
+        }
+
+        AtomicInteger added = new AtomicInteger();
+        Future<Void> written = Future.succeededFuture();
+        for (int i = 0; i < batches.size(); i++) {
+            List<TextCache> texts = batches.get(i);
+            Promise<Void> saved = promises.get(i);
+            written = written.flatMap(v -> textStore.writeAll(texts))
+                    .onSuccess(v -> {
+                        int count = textIndex.addAll(texts);
+                        if (count > 0) changed(null);
+                        added.addAndGet(count);
+                    })
+                    .onComplete(r -> {
+                        texts.forEach(t -> pendingSaves.remove(AnalyzeServiceImpl.foldCase(t.getText())));
+                        saved.handle(r);
+                    });
+        }
+        return written.map(v -> added.get());
+    }
+
+    @Override
+    public Future<Void> close() {
+        return textStore.close();
+    }
+
+    @Value(staticConstructor = "of")
+    private static class AddedText {
+        long epoch;
+        TextCache text;
+    }
 }
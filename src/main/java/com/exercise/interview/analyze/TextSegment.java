@@ -0,0 +1,255 @@
+package com.exercise.interview.analyze;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Immutable file of texts sorted in {@link String#CASE_INSENSITIVE_ORDER}, searched through a memory mapping.
+ * Layout: a header with the count and the table positions, the texts as char value, length and UTF-16 chars,
+ * the offsets of the texts in lexical order, then the texts by char value as the value in the high half of a long
+ * and the lexical position in the low half, sorted.
+ */
+public class TextSegment {
+    public static final long MAX_BYTES = Integer.MAX_VALUE;
+
+    private static final int MAGIC = 0x41545347;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int lexicalTable;
+    private final int valueTable;
+
+    private TextSegment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) throw new IOException("Unknown segment: " + path);
+
+        this.count = buffer.getInt(8);
+        this.lexicalTable = (int) buffer.getLong(16);
+        this.valueTable = (int) buffer.getLong(24);
+    }
+
+    public static TextSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_BYTES) throw new IOException("Segment too large to map: " + path);
+            return new TextSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long bytes() {
+        return buffer.capacity();
+    }
+
+    public boolean contains(String text) {
+        int index = floorIndex(text);
+        return index >= 0 && compare(index, text) == 0;
+    }
+
+    public String floor(String text) {
+        int index = floorIndex(text);
+        return index < 0 ? null : text(index);
+    }
+
+    public String ceiling(String text) {
+        int index = floorIndex(text);
+        if (index >= 0 && compare(index, text) == 0) return text(index);
+        return index + 1 < count ? text(index + 1) : null;
+    }
+
+    /**
+     * Adds up to limit texts lower than or equal to the given one, from the closest.
+     */
+    public void below(String text, int limit, Collection<String> texts) {
+        for (int i = floorIndex(text), added = 0; i >= 0 && added < limit; i--, added++) texts.add(text(i));
+    }
+
+    /**
+     * Adds up to limit texts greater than the given one, from the closest.
+     */
+    public void above(String text, int limit, Collection<String> texts) {
+        for (int i = floorIndex(text) + 1, added = 0; i < count && added < limit; i++, added++) texts.add(text(i));
+    }
+
+    /**
+     * Adds the texts with the given char value, in lexical order.
+     */
+    public void textsWithValue(int value, Collection<String> texts) {
+        textsWithValue(value, Integer.MAX_VALUE, texts);
+    }
+
+    /**
+     * Adds the first limit texts with the given char value, in lexical order.
+     */
+    public void textsWithValue(int value, int limit, Collection<String> texts) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((int) (valueEntry(middle) >> 32) < value) low = middle + 1;
+            else high = middle;
+        }
+
+        for (int i = low; i < count && i - low < limit; i++) {
+            long entry = valueEntry(i);
+            if ((int) (entry >> 32) != value) break;
+            texts.add(text((int) entry));
+        }
+    }
+
+    public void forEach(Consumer<TextCache> consumer) {
+        for (int i = 0; i < count; i++) consumer.accept(textCache(i));
+    }
+
+    public TextCache textCache(int index) {
+        return TextCache.of(text(index), buffer.getInt(offset(index)));
+    }
+
+    public String text(int index) {
+        int offset = offset(index);
+        char[] chars = new char[buffer.getInt(offset + 4)];
+        for (int i = 0; i < chars.length; i++) chars[i] = buffer.getChar(offset + 8 + 2 * i);
+        return new String(chars);
+    }
+
+    /**
+     * Greatest position whose text is lower than or equal to the given one, or -1.
+     */
+    private int floorIndex(String text) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, text);
+            if (comparison == 0) return middle;
+            if (comparison < 0) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Compares the stored text with the given one in {@link String#CASE_INSENSITIVE_ORDER}, without decoding it.
+     */
+    private int compare(int index, String other) {
+        int offset = offset(index);
+        int length = buffer.getInt(offset + 4);
+        int at = offset + 8;
+        int min = Math.min(length, other.length());
+        for (int i = 0; i < min; i++) {
+            char c1 = buffer.getChar(at + 2 * i);
+            char c2 = other.charAt(i);
+            if (c1 == c2) continue;
+
+            c1 = Character.toUpperCase(c1);
+            c2 = Character.toUpperCase(c2);
+            if (c1 == c2) continue;
+
+            c1 = Character.toLowerCase(c1);
+            c2 = Character.toLowerCase(c2);
+            if (c1 != c2) return c1 - c2;
+        }
+
+        return length - other.length();
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(lexicalTable + 4 * index);
+    }
+
+    private long valueEntry(int index) {
+        return buffer.getLong(valueTable + 8 * index);
+    }
+
+    /**
+     * Writes texts given in lexical order to a temporary file, moved to the segment path once complete.
+     */
+    public static class Writer implements AutoCloseable {
+        private final Path path;
+        private final Path temporary;
+        private final DataOutputStream out;
+        private int[] offsets = new int[1024];
+        private long[] values = new long[1024];
+        private int count;
+        private long position = HEADER_SIZE;
+
+        public Writer(Path path) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16));
+            out.write(new byte[HEADER_SIZE]);
+        }
+
+        public void add(TextCache text) throws IOException {
+            String chars = text.getText();
+            long entrySize = 8 + 2L * chars.length();
+            if (position + entrySize + 12L * (count + 1) > MAX_BYTES) throw new IOException("Segment full: " + path);
+
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            offsets[count] = (int) position;
+            values[count] = ((long) text.getCharValue() << 32) | count;
+            count++;
+
+            out.writeInt(text.getCharValue());
+            out.writeInt(chars.length());
+            out.writeChars(chars);
+            position += entrySize;
+        }
+
+        public TextSegment finish() throws IOException {
+            long lexicalTable = position;
+            for (int i = 0; i < count; i++) out.writeInt(offsets[i]);
+
+            long valueTable = lexicalTable + 4L * count;
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            for (long value : sorted) out.writeLong(value);
+            out.close();
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putInt(count)
+                        .putInt(0)
+                        .putLong(lexicalTable)
+                        .putLong(valueTable)
+                        .flip();
+                while (header.hasRemaining()) channel.write(header, header.position());
+            }
+
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(path);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the cached texts, read back through a memory mapped file.
+ * Layout: magic, version, watermark, then per text its char value and length prefixed UTF-8 bytes,
+ * terminated by a -1 length and followed by a CRC32 of everything before it.
+ */
+@AllArgsConstructor
+@Slf4j
+public class TextSnapshot {
+    private static final int MAGIC = 0x41545853;
+    private static final int VERSION = 2;
+
+    private final Vertx vertx;
+    private final Path path;
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    public Future<Long> load(Consumer<TextCache> consumer) {
+        if (!isEnabled() || !Files.exists(path)) return Future.succeededFuture(0L);
+
+        return vertx.executeBlocking(p -> {
+            try {
+                p.complete(read(consumer));
+            } catch (IOException | RuntimeException e) {
+                p.fail(e);
+            }
+        }, false);
+    }
+
+    public Future<Void> save(long watermark, TextIndex textIndex) {
+        if (!isEnabled()) return Future.succeededFuture();
+
+        return vertx.executeBlocking(p -> {
+            try {
+                write(watermark, textIndex);
+                p.complete();
+            } catch (IOException | RuntimeException e) {
+                p.fail(e);
+            }
+        }, false);
+    }
+
+    private long read(Consumer<TextCache> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Snapshot too large to map: " + path);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            verifyChecksum(buffer);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unknown snapshot format: " + path);
+            }
+
+            long watermark = buffer.getLong();
+            long texts = 0;
+            for (int value = buffer.getInt(), length = buffer.getInt(); length >= 0;
+                 value = buffer.getInt(), length = buffer.getInt()) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                consumer.accept(TextCache.of(new String(bytes, StandardCharsets.UTF_8), value));
+                texts++;
+            }
+
+            log.info("Loaded {} texts from snapshot {} at watermark {}", texts, path, watermark);
+            return watermark;
+        }
+    }
+
+    private static void verifyChecksum(MappedByteBuffer buffer) throws IOException {
+        if (buffer.limit() < Integer.BYTES) throw new IOException("Truncated snapshot");
+
+        int checksumPosition = buffer.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.limit(checksumPosition);
+        crc.update(content);
+
+        if ((int) crc.getValue() != buffer.getInt(checksumPosition)) throw new IOException("Corrupted snapshot");
+        buffer.limit(checksumPosition);
+    }
+
+    private void write(long watermark, TextIndex textIndex) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        AtomicLong texts = new AtomicLong();
+
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(watermark);
+
+            try {
+                textIndex.forEach(t -> {
+                    try {
+                        byte[] bytes = t.getText().getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(t.getCharValue());
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                        texts.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            out.writeInt(0);
+            out.writeInt(-1);
+            out.flush();
+            file.write(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Saved {} texts to snapshot {} at watermark {}", texts.get(), path, watermark);
+    }
+}
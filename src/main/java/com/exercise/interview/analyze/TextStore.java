@@ -0,0 +1,27 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Durable storage of the texts, each given an increasing id so texts stored after a watermark can be loaded.
+ */
+public interface TextStore {
+    Future<Void> open();
+
+    /**
+     * Passes every text stored with an id greater than the given one to the consumer, along with its id. Texts with
+     * lower ids may be passed again.
+     */
+    Future<Void> load(long afterId, ObjLongConsumer<TextCache> consumer);
+
+    Future<Void> write(TextCache text);
+
+    Future<Void> writeAll(List<TextCache> texts);
+
+    int queueSize();
+
+    Future<Void> close();
+}
@@ -0,0 +1,363 @@
+package com.exercise.interview.analyze;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index keeping the recent texts in a hot in-memory tier, spilled to an immutable {@link TextSegment} once it is
+ * over its heap budget. A spilled tier stays searchable until its segment is written by a background thread, which
+ * also merges the smallest segments once there are too many. Char values of every tier are kept in memory.
+ * <p>
+ * Segments only back the cache: they are deleted on start up and on clear, as the texts are loaded from the store.
+ */
+@Slf4j
+public class TieredTextIndex implements TextIndex {
+    private static final String SUFFIX = ".seg";
+    private static final int TEXT_OVERHEAD_BYTES = 160;
+
+    private final Path directory;
+    private final Supplier<TextIndex> hotTiers;
+    private final long hotBudget;
+    private final int maxSegments;
+    private final ExecutorService spiller;
+    private final ValueIndex valueIndex = new ValueIndex();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger segmentIds = new AtomicInteger();
+    private volatile Tiers tiers;
+    private long hotBytes;
+
+    public TieredTextIndex(Path directory, Supplier<TextIndex> hotTiers, long hotBudget, int maxSegments) {
+        this.directory = directory;
+        this.hotTiers = hotTiers;
+        this.hotBudget = hotBudget;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.spiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "analyze-tier-spiller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tiers = new Tiers(0, hotTiers.get(), List.of(), List.of());
+
+        try {
+            Files.createDirectories(directory);
+            deleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized boolean add(TextCache text) {
+        Tiers current = tiers;
+        if (current.containsSpilled(text.getText()) || !current.hot.add(text)) return false;
+
+        valueIndex.add(text.getCharValue());
+        size.incrementAndGet();
+
+        hotBytes += TEXT_OVERHEAD_BYTES + 2L * text.getText().length();
+        if (hotBytes > hotBudget) spill(current);
+        return true;
+    }
+
+    @Override
+    public boolean contains(String text) {
+        Tiers current = tiers;
+        return current.hot.contains(text) || current.containsSpilled(text);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public synchronized void clear() {
+        tiers = new Tiers(tiers.generation + 1, hotTiers.get(), List.of(), List.of());
+        hotBytes = 0;
+        valueIndex.clear();
+        size.set(0);
+        spiller.execute(this::deleteSegmentsQuietly);
+    }
+
+    @Override
+    public LexicalNeighbours lexicalNeighbours(String text) {
+        Tiers current = tiers;
+        LexicalNeighbours hot = current.hot.lexicalNeighbours(text);
+        String floor = hot.getFloor();
+        String ceiling = hot.getCeiling();
+
+        for (TextIndex frozen : current.frozen) {
+            LexicalNeighbours neighbours = frozen.lexicalNeighbours(text);
+            floor = max(floor, neighbours.getFloor());
+            ceiling = min(ceiling, neighbours.getCeiling());
+        }
+        for (TextSegment segment : current.segments) {
+            floor = max(floor, segment.floor(text));
+            ceiling = min(ceiling, segment.ceiling(text));
+        }
+
+        return LexicalNeighbours.of(floor, ceiling);
+    }
+
+    @Override
+    public List<String> lexicalBelow(String text, int limit) {
+        Tiers current = tiers;
+        NavigableSet<String> texts = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        texts.addAll(current.hot.lexicalBelow(text, limit));
+        current.frozen.forEach(f -> texts.addAll(f.lexicalBelow(text, limit)));
+        current.segments.forEach(s -> s.below(text, limit, texts));
+        return first(texts.descendingSet(), limit);
+    }
+
+    @Override
+    public List<String> lexicalAbove(String text, int limit) {
+        Tiers current = tiers;
+        NavigableSet<String> texts = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        texts.addAll(current.hot.lexicalAbove(text, limit));
+        current.frozen.forEach(f -> texts.addAll(f.lexicalAbove(text, limit)));
+        current.segments.forEach(s -> s.above(text, limit, texts));
+        return first(texts, limit);
+    }
+
+    @Override
+    public long closestValue(int value) {
+        return valueIndex.closest(value);
+    }
+
+    @Override
+    public int[] closestValues(int value, int limit) {
+        return valueIndex.closest(value, limit);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value, int limit) {
+        Tiers current = tiers;
+        NavigableSet<String> texts = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        texts.addAll(current.hot.textsWithValue(value, limit));
+        current.frozen.forEach(f -> texts.addAll(f.textsWithValue(value, limit)));
+        current.segments.forEach(s -> s.textsWithValue(value, limit, texts));
+        return first(texts, limit);
+    }
+
+    @Override
+    public List<String> textsWithValue(int value) {
+        Tiers current = tiers;
+        NavigableSet<String> texts = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        texts.addAll(current.hot.textsWithValue(value));
+        current.frozen.forEach(f -> texts.addAll(f.textsWithValue(value)));
+        current.segments.forEach(s -> s.textsWithValue(value, texts));
+        return new ArrayList<>(texts);
+    }
+
+    @Override
+    public void forEach(Consumer<TextCache> consumer) {
+        Tiers current = tiers;
+        current.hot.forEach(consumer);
+        current.frozen.forEach(f -> f.forEach(consumer));
+        current.segments.forEach(s -> s.forEach(consumer));
+    }
+
+    public int segments() {
+        return tiers.segments.size();
+    }
+
+    /**
+     * Waits for the spills and merges scheduled so far.
+     */
+    void awaitSpills() throws Exception {
+        Future<?> done = spiller.submit(() -> {});
+        done.get();
+    }
+
+    private void spill(Tiers current) {
+        TextIndex frozen = current.hot;
+        tiers = current.withHot(hotTiers.get(), frozen);
+        hotBytes = 0;
+
+        spiller.execute(() -> {
+            try {
+                TextSegment segment = write(frozen);
+                replace(current.generation, List.of(frozen), List.of(), segment);
+                mergeSegments(current.generation);
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not spill " + frozen.size() + " texts, keeping them in memory", e);
+            }
+        });
+    }
+
+    private TextSegment write(TextIndex frozen) throws IOException {
+        List<TextCache> texts = new ArrayList<>(frozen.size());
+        frozen.forEach(texts::add);
+        texts.sort(Comparator.comparing(TextCache::getText, String.CASE_INSENSITIVE_ORDER));
+
+        try (TextSegment.Writer writer = new TextSegment.Writer(nextSegmentPath())) {
+            for (TextCache text : texts) writer.add(text);
+            TextSegment segment = writer.finish();
+            log.debug("Spilled {} texts to {}", texts.size(), segment.path());
+            return segment;
+        }
+    }
+
+    /**
+     * Merges the smallest segments into one while there are more than allowed and their merge fits in a mapping.
+     */
+    private void mergeSegments(long generation) throws IOException {
+        while (true) {
+            List<TextSegment> segments = new ArrayList<>(tiers.segments);
+            if (tiers.generation != generation || segments.size() <= maxSegments) return;
+
+            segments.sort(Comparator.comparingLong(TextSegment::bytes));
+            int wanted = segments.size() - maxSegments + 1;
+            List<TextSegment> merged = new ArrayList<>();
+            long bytes = 0;
+            for (TextSegment segment : segments) {
+                if (merged.size() == wanted || bytes + segment.bytes() > TextSegment.MAX_BYTES) break;
+                merged.add(segment);
+                bytes += segment.bytes();
+            }
+            if (merged.size() < 2) return;
+
+            replace(generation, List.of(), merged, merge(merged));
+            for (TextSegment segment : merged) Files.deleteIfExists(segment.path());
+        }
+    }
+
+    private TextSegment merge(List<TextSegment> segments) throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(
+                Comparator.comparing((Cursor c) -> c.text, String.CASE_INSENSITIVE_ORDER));
+        for (TextSegment segment : segments) {
+            if (segment.size() > 0) cursors.add(new Cursor(segment, 0, segment.text(0)));
+        }
+
+        try (TextSegment.Writer writer = new TextSegment.Writer(nextSegmentPath())) {
+            String last = null;
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                if (last == null || !last.equalsIgnoreCase(cursor.text)) {
+                    writer.add(cursor.segment.textCache(cursor.index));
+                    last = cursor.text;
+                }
+
+                int next = cursor.index + 1;
+                if (next < cursor.segment.size()) {
+                    cursors.add(new Cursor(cursor.segment, next, cursor.segment.text(next)));
+                }
+            }
+
+            TextSegment segment = writer.finish();
+            log.info("Merged {} segments into {} with {} texts", segments.size(), segment.path(), segment.size());
+            return segment;
+        }
+    }
+
+    private synchronized void replace(long generation, List<TextIndex> frozen, List<TextSegment> segments,
+                                      TextSegment segment) throws IOException {
+        if (tiers.generation != generation) {
+            Files.deleteIfExists(segment.path());
+            return;
+        }
+
+        List<TextIndex> remainingFrozen = new ArrayList<>(tiers.frozen);
+        remainingFrozen.removeAll(frozen);
+        List<TextSegment> remainingSegments = new ArrayList<>(tiers.segments);
+        remainingSegments.removeAll(segments);
+        remainingSegments.add(segment);
+        tiers = new Tiers(generation, tiers.hot, Collections.unmodifiableList(remainingFrozen),
+                Collections.unmodifiableList(remainingSegments));
+    }
+
+    private Path nextSegmentPath() {
+        return directory.resolve(String.format("%010d%s", segmentIds.incrementAndGet(), SUFFIX));
+    }
+
+    private void deleteSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(f -> f.getFileName().toString().contains(SUFFIX))
+                    .collect(Collectors.toList());
+            for (Path segment : segments) Files.deleteIfExists(segment);
+        }
+    }
+
+    private void deleteSegmentsQuietly() {
+        try {
+            deleteSegments();
+        } catch (IOException e) {
+            log.warn("Could not delete the segments of " + directory, e);
+        }
+    }
+
+    /**
+     * The closest limit texts of the merge of every tier's closest limit texts.
+     */
+    private static List<String> first(Iterable<String> texts, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (String text : texts) {
+            if (result.size() >= limit) break;
+            result.add(text);
+        }
+        return result;
+    }
+
+    private static String max(String lhs, String rhs) {
+        if (lhs == null) return rhs;
+        if (rhs == null) return lhs;
+        return String.CASE_INSENSITIVE_ORDER.compare(lhs, rhs) >= 0 ? lhs : rhs;
+    }
+
+    private static String min(String lhs, String rhs) {
+        if (lhs == null) return rhs;
+        if (rhs == null) return lhs;
+        return String.CASE_INSENSITIVE_ORDER.compare(lhs, rhs) <= 0 ? lhs : rhs;
+    }
+
+    @AllArgsConstructor
+    private static class Tiers {
+        private final long generation;
+        private final TextIndex hot;
+        private final List<TextIndex> frozen;
+        private final List<TextSegment> segments;
+
+        private boolean containsSpilled(String text) {
+            for (TextIndex f : frozen) {
+                if (f.contains(text)) return true;
+            }
+            for (TextSegment segment : segments) {
+                if (segment.contains(text)) return true;
+            }
+            return false;
+        }
+
+        private Tiers withHot(TextIndex newHot, TextIndex spilled) {
+            List<TextIndex> spilledTiers = new ArrayList<>(frozen);
+            spilledTiers.add(spilled);
+            return new Tiers(generation, newHot, Collections.unmodifiableList(spilledTiers), segments);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Cursor {
+        private final TextSegment segment;
+        private final int index;
+        private final String text;
+    }
+}
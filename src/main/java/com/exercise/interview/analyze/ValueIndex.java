@@ -0,0 +1,203 @@
+package com.exercise.interview.analyze;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Char values kept in a two level occupancy bitmap, so nearest value lookups neither box nor copy.
+ * Values out of the bitmap range, only reachable by very long texts, fall back to a sorted set.
+ */
+public class ValueIndex {
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final int MAX_BITMAP_VALUE = (1 << 24) - 1;
+    private static final int INITIAL_WORDS = 64;
+
+    private volatile Bitmap bitmap = new Bitmap(INITIAL_WORDS);
+    private final NavigableSet<Integer> outliers = new ConcurrentSkipListSet<>();
+
+    public void add(int value) {
+        if (value < 0 || value > MAX_BITMAP_VALUE) {
+            outliers.add(value);
+            return;
+        }
+
+        synchronized (this) {
+            int wordIndex = value >>> 6;
+            if (wordIndex >= bitmap.words.length()) bitmap = bitmap.grow(wordIndex + 1);
+            bitmap.set(value);
+        }
+    }
+
+    public void addAll(int[] values) {
+        int max = -1;
+        for (int value : values) {
+            if (value < 0 || value > MAX_BITMAP_VALUE) outliers.add(value);
+            else max = Math.max(max, value);
+        }
+        if (max < 0) return;
+
+        synchronized (this) {
+            int wordIndex = max >>> 6;
+            if (wordIndex >= bitmap.words.length()) bitmap = bitmap.grow(wordIndex + 1);
+            for (int value : values) {
+                if (value >= 0 && value <= MAX_BITMAP_VALUE) bitmap.set(value);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        bitmap = new Bitmap(INITIAL_WORDS);
+        outliers.clear();
+    }
+
+    public boolean isEmpty() {
+        return bitmap.isEmpty() && outliers.isEmpty();
+    }
+
+    public boolean contains(int value) {
+        if (value < 0 || value > MAX_BITMAP_VALUE) return outliers.contains(value);
+
+        Bitmap b = bitmap;
+        int wordIndex = value >>> 6;
+        return wordIndex < b.words.length() && (b.words.get(wordIndex) & (1L << value)) != 0;
+    }
+
+    /**
+     * Greatest value lower than or equal to the given one, or {@link #NONE}.
+     */
+    public long floor(int value) {
+        long result = value < 0 ? NONE : bitmap.floor(Math.min(value, MAX_BITMAP_VALUE));
+        if (outliers.isEmpty()) return result;
+
+        Integer outlier = outliers.floor(value);
+        return outlier == null ? result : Math.max(result, outlier);
+    }
+
+    /**
+     * Least value greater than or equal to the given one, or {@link #NONE}.
+     */
+    public long ceiling(int value) {
+        long result = value > MAX_BITMAP_VALUE ? NONE : bitmap.ceiling(Math.max(value, 0));
+        if (outliers.isEmpty()) return result;
+
+        Integer outlier = outliers.ceiling(value);
+        if (outlier == null) return result;
+        return result == NONE ? outlier : Math.min(result, outlier);
+    }
+
+    /**
+     * Value closest to the given one, the higher value on ties, or {@link #NONE} when empty.
+     */
+    public long closest(int value) {
+        long floor = floor(value);
+        long ceiling = ceiling(value);
+
+        if (floor == NONE) return ceiling;
+        if (ceiling == NONE) return floor;
+        return ceiling - value <= value - floor ? ceiling : floor;
+    }
+
+    /**
+     * Up to limit values by distance to the given one, the higher value first on ties, walking outward from it.
+     */
+    public int[] closest(int value, int limit) {
+        if (limit <= 0) return new int[0];
+
+        int[] result = new int[limit];
+        int count = 0;
+        long floor = floor(value);
+        long ceiling = ceiling(value);
+        if (floor != NONE && floor == ceiling) {
+            result[count++] = (int) floor;
+            floor = floor == Integer.MIN_VALUE ? NONE : floor((int) floor - 1);
+            ceiling = ceiling == Integer.MAX_VALUE ? NONE : ceiling((int) ceiling + 1);
+        }
+
+        while (count < result.length && (floor != NONE || ceiling != NONE)) {
+            if (floor == NONE || (ceiling != NONE && ceiling - value <= value - floor)) {
+                result[count++] = (int) ceiling;
+                ceiling = ceiling == Integer.MAX_VALUE ? NONE : ceiling((int) ceiling + 1);
+            } else {
+                result[count++] = (int) floor;
+                floor = floor == Integer.MIN_VALUE ? NONE : floor((int) floor - 1);
+            }
+        }
+
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static class Bitmap {
+        private final AtomicLongArray words;
+        private final AtomicLongArray summary;
+
+        private Bitmap(int words) {
+            this.words = new AtomicLongArray(words);
+            this.summary = new AtomicLongArray((words + 63) >>> 6);
+        }
+
+        private Bitmap grow(int minWords) {
+            int size = words.length();
+            while (size < minWords) size <<= 1;
+
+            Bitmap grown = new Bitmap(size);
+            for (int i = 0; i < words.length(); i++) grown.words.set(i, words.get(i));
+            for (int i = 0; i < summary.length(); i++) grown.summary.set(i, summary.get(i));
+            return grown;
+        }
+
+        private void set(int value) {
+            int wordIndex = value >>> 6;
+            words.set(wordIndex, words.get(wordIndex) | (1L << value));
+            summary.set(wordIndex >>> 6, summary.get(wordIndex >>> 6) | (1L << wordIndex));
+        }
+
+        private boolean isEmpty() {
+            for (int i = 0; i < summary.length(); i++) {
+                if (summary.get(i) != 0) return false;
+            }
+            return true;
+        }
+
+        private long floor(int value) {
+            int wordIndex = value >>> 6;
+            if (wordIndex >= words.length()) {
+                wordIndex = words.length() - 1;
+                value = (wordIndex << 6) | 63;
+            }
+
+            long word = words.get(wordIndex) & (-1L >>> (63 - (value & 63)));
+            if (word != 0) return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+
+            int summaryIndex = wordIndex >>> 6;
+            long bits = summary.get(summaryIndex) & ((1L << wordIndex) - 1);
+            while (bits == 0) {
+                if (--summaryIndex < 0) return NONE;
+                bits = summary.get(summaryIndex);
+            }
+
+            int found = (summaryIndex << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            return (found << 6) + 63 - Long.numberOfLeadingZeros(words.get(found));
+        }
+
+        private long ceiling(int value) {
+            int wordIndex = value >>> 6;
+            if (wordIndex >= words.length()) return NONE;
+
+            long word = words.get(wordIndex) & (-1L << value);
+            if (word != 0) return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+
+            int summaryIndex = wordIndex >>> 6;
+            long bits = summary.get(summaryIndex) & ((-1L << wordIndex) << 1);
+            while (bits == 0) {
+                if (++summaryIndex >= summary.length()) return NONE;
+                bits = summary.get(summaryIndex);
+            }
+
+            int found = (summaryIndex << 6) + Long.numberOfTrailingZeros(bits);
+            return (found << 6) + Long.numberOfTrailingZeros(words.get(found));
+        }
+    }
+}
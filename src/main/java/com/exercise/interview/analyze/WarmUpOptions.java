@@ -0,0 +1,9 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+@Value(staticConstructor = "of")
+public class WarmUpOptions {
+    int fetchSize;
+    int progressInterval;
+}
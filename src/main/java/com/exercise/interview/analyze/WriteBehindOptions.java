@@ -0,0 +1,10 @@
+package com.exercise.interview.analyze;
+
+import lombok.Value;
+
+@Value(staticConstructor = "of")
+public class WriteBehindOptions {
+    int batchSize;
+    long flushInterval;
+    int queueSize;
+}
@@ -0,0 +1,11 @@
+package com.exercise.interview.analyze;
+
+/**
+ * Text refused by a store whose write queue is full. It sheds the request saving it, so the text is not lost
+ * without the client knowing.
+ */
+public class WriteQueueFullException extends OverloadedException {
+    public WriteQueueFullException(String message) {
+        super("write_queue", message);
+    }
+}
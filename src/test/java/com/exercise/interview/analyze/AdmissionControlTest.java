@@ -0,0 +1,46 @@
+package com.exercise.interview.analyze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionControlTest {
+    @Test
+    void testInFlightLimit() {
+        AdmissionControl control = new AdmissionControl(2, 0, () -> 0);
+
+        control.acquire();
+        control.acquire();
+        OverloadedException e = assertThrows(OverloadedException.class, control::acquire);
+        assertEquals("in_flight", e.getReason());
+        assertEquals(2, control.inFlight());
+
+        control.release();
+        assertDoesNotThrow(control::acquire);
+    }
+
+    @Test
+    void testQueuedWritesLimit() {
+        AtomicInteger queuedWrites = new AtomicInteger(10);
+        AdmissionControl control = new AdmissionControl(0, 10, queuedWrites::get);
+
+        OverloadedException e = assertThrows(OverloadedException.class, control::acquire);
+        assertEquals("write_queue", e.getReason());
+        assertEquals(0, control.inFlight());
+
+        queuedWrites.set(9);
+        assertDoesNotThrow(control::acquire);
+    }
+
+    @Test
+    void testUnbounded() {
+        AdmissionControl control = AdmissionControl.unbounded();
+
+        for (int i = 0; i < 1000; i++) control.acquire();
+        assertEquals(1000, control.inFlight());
+    }
+}
@@ -0,0 +1,56 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class AnalyzeRequestParserTest {
+    @ParameterizedTest
+    @MethodSource("parsed")
+    void testParse(String body, TextCache expected) {
+        assertEquals(expected, AnalyzeRequestParser.parse(Buffer.buffer(body)));
+    }
+
+    static Stream<Arguments> parsed() {
+        return Stream.of(
+            arguments("{\"text\":\"word\"}", TextCache.of("word", 60)),
+            arguments(" { \"text\" :\t\"WoRd\" }\n", TextCache.of("WoRd", 60)),
+            arguments("{\"text\":\"\"}", TextCache.of("", 0)),
+            arguments("{\"text\":\"abcdefghijklmnopqrstuvwxyzZ\"}", TextCache.of("abcdefghijklmnopqrstuvwxyzZ", 377))
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "",
+        "[]",
+        "{}",
+        "{\"text\":\"a\\u0062\"}",
+        "{\"text\":\"café\"}",
+        "{\"text\":\"word\",\"other\":1}",
+        "{\"other\":1,\"text\":\"word\"}",
+        "{\"text\":1}",
+        "{\"text\":\"word\"",
+        "{\"text\":\"word\"}x",
+        "{\"text\":\"wo1\"",
+        "{\"texts\":\"word\"}"
+    })
+    void testFallback(String body) {
+        assertNull(AnalyzeRequestParser.parse(Buffer.buffer(body)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"{\"text\":\"wo1\"}", "{\"text\":\"a b\"}", "{\"text\":\"a-b\"}", "{\"text\":\"[\"}"})
+    void testInvalidCharacter(String body) {
+        assertThrows(InvalidRequestException.class, () -> AnalyzeRequestParser.parse(Buffer.buffer(body)));
+    }
+}
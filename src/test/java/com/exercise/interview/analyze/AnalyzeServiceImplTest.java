@@ -1,7 +1,12 @@
 package com.exercise.interview.analyze;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.subjects.SingleSubject;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -9,13 +14,21 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,10 +39,24 @@ class AnalyzeServiceImplTest {
     @Mock
     TextRepository textRepository;
 
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Spy
+    AnalyzeMetrics metrics = new AnalyzeMetrics(registry);
+
+    @Spy
+    LookupExecution lookupExecution = LookupExecution.inline();
+
+    private static Single<LexicalNeighbours> neighbours(List<String> texts, String text) {
+        NavigableSet<String> ordered = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        ordered.addAll(texts);
+        return Single.just(LexicalNeighbours.of(ordered.floor(text), ordered.ceiling(text)));
+    }
+
     @Test
     void testAnalyzeEmptyCache() {
-        when(textRepository.getOrderedText()).thenReturn(Single.just(List.of()));
-        when(textRepository.getOrderedValue()).thenReturn(Single.just(List.of()));
+        when(textRepository.getLexicalNeighbours("word")).thenReturn(neighbours(List.of(), "word"));
+        when(textRepository.getClosestValue(60)).thenReturn(Maybe.empty());
         when(textRepository.saveText(TextCache.of("word", 60))).thenReturn(Future.succeededFuture());
         AnalyzeResponse response = analyzeService.analyze("word").blockingGet();
         assertEquals(AnalyzeResponse.of(null, null), response);
@@ -37,21 +64,97 @@ class AnalyzeServiceImplTest {
 
     @Test
     void testAnalyzeOneSaved() {
-        when(textRepository.getOrderedText()).thenReturn(Single.just(List.of("c")));
-        when(textRepository.getOrderedValue()).thenReturn(Single.just(List.of(3)));
-        when(textRepository.getTextsWithValue(3)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours(List.of("c"), "ab"));
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
         when(textRepository.saveText(TextCache.of("ab", 3))).thenReturn(Future.succeededFuture());
         AnalyzeResponse response = analyzeService.analyze("ab").blockingGet();
         assertEquals(AnalyzeResponse.of("c", "c"), response);
     }
 
+    @Test
+    void testAnsweredWithoutWaitingForTheSave() {
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours(List.of("c"), "ab"));
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.saveText(TextCache.of("ab", 3))).thenReturn(Promise.<Void>promise().future());
+
+        analyzeService.analyze("ab").test().assertValue(AnalyzeResponse.of("c", "c"));
+    }
+
+    @Test
+    void testShedWhenTheWriteQueueRefusesTheText() {
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours(List.of("c"), "ab"));
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.saveText(TextCache.of("ab", 3)))
+                .thenReturn(Future.failedFuture(new WriteQueueFullException("full")));
+
+        analyzeService.analyze("ab").test().assertError(WriteQueueFullException.class);
+    }
+
+    @Test
+    void testAnalyzeMetrics() {
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours(List.of("c"), "ab"));
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.saveText(TextCache.of("ab", 3))).thenReturn(Future.failedFuture("down"));
+        analyzeService.analyze("ab").blockingGet();
+
+        for (String stage : List.of("neighbours", "lexical", "closest_value", "texts_with_value", "lookup")) {
+            assertEquals(1, registry.get("analyze.stage").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(1, registry.get("analyze.save").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testConcurrentLookupsCoalesced() {
+        SingleSubject<LexicalNeighbours> neighbours = SingleSubject.create();
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours);
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.saveText(any())).thenReturn(Future.succeededFuture());
+
+        TestObserver<AnalyzeResponse> first = analyzeService.analyze("ab").test();
+        TestObserver<AnalyzeResponse> second = analyzeService.analyze("AB").test();
+        neighbours.onSuccess(LexicalNeighbours.of("c", null));
+
+        first.assertValue(AnalyzeResponse.of("c", "c"));
+        second.assertValue(AnalyzeResponse.of("c", "c"));
+        verify(textRepository, times(1)).getLexicalNeighbours(any());
+        verify(textRepository).saveText(TextCache.of("AB", 3));
+        assertEquals(1, registry.get("analyze.coalesced").tag("operation", "lookup").counter().count());
+
+        analyzeService.analyze("ab").blockingGet();
+        verify(textRepository, times(2)).getLexicalNeighbours(any());
+    }
+
+    @Test
+    void testAnalyzeBatch() {
+        when(textRepository.getLexicalNeighbours("ab")).thenReturn(neighbours(List.of("c"), "ab"));
+        when(textRepository.getLexicalNeighbours("d")).thenReturn(neighbours(List.of("c"), "d"));
+        when(textRepository.getClosestValue(3)).thenReturn(Maybe.just(3));
+        when(textRepository.getClosestValue(4)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.saveTexts(List.of(TextCache.of("ab", 3), TextCache.of("d", 4))))
+                .thenReturn(Future.succeededFuture());
+        List<AnalyzeResponse> responses = analyzeService.analyzeBatch(List.of("ab", "d")).toList().blockingGet();
+        assertEquals(List.of(AnalyzeResponse.of("c", "c"), AnalyzeResponse.of("c", "c")), responses);
+        verify(textRepository).saveTexts(List.of(TextCache.of("ab", 3), TextCache.of("d", 4)));
+    }
+
+    @Test
+    void testAnalyzeBatchInvalidText() {
+        assertThrows(InvalidRequestException.class, () -> analyzeService.analyzeBatch(List.of("ab", "d4")));
+    }
+
     @ParameterizedTest
     @MethodSource("values")
-    void testAnalyzeValueScenarios(List<Integer> orderedValue, Integer closerValue,
-            List<String> textsWithValue, String text, Integer charValue, String closerText) {
-        when(textRepository.getOrderedText()).thenReturn(Single.just(List.of("c")));
-        when(textRepository.getOrderedValue()).thenReturn(Single.just(orderedValue));
-        when(textRepository.getTextsWithValue(closerValue)).thenReturn(Single.just(textsWithValue));
+    void testAnalyzeValueScenarios(Integer closerValue, List<String> textsWithValue, String text,
+            Integer charValue, String closerText) {
+        when(textRepository.getLexicalNeighbours(text)).thenReturn(neighbours(List.of("c"), text));
+        when(textRepository.getClosestValue(charValue)).thenReturn(Maybe.just(closerValue));
+        when(textRepository.getTextsWithValue(closerValue, 1)).thenReturn(Single.just(textsWithValue));
         when(textRepository.saveText(TextCache.of(text, charValue))).thenReturn(Future.succeededFuture());
         AnalyzeResponse response = analyzeService.analyze(text).blockingGet();
         assertEquals(AnalyzeResponse.of(closerText, "c"), response);
@@ -59,14 +162,11 @@ class AnalyzeServiceImplTest {
 
     static Stream<Arguments> values() {
         return Stream.of(
-            arguments(List.of(3, 8), 8, List.of("dd"), "h", 8, "dd"),
-            arguments(List.of(3, 8), 8, List.of("dd"), "f", 6, "dd"),
-            arguments(List.of(3, 8), 8, List.of("dd"), "j", 10, "dd"),
-            arguments(List.of(3, 8), 3, List.of("aaa"), "e", 5, "aaa"),
-            arguments(List.of(3, 8), 3, List.of("aaa"), "E", 5, "aaa"),
-            arguments(List.of(3, 8), 3, List.of("aaa"), "a", 1, "aaa"),
-            arguments(List.of(3, 7), 7, List.of("dc"), "e", 5, "dc"),
-            arguments(List.of(7), 7, List.of("abd", "bad", "g"), "bad", 7, "abd")
+            arguments(8, List.of("dd"), "h", 8, "dd"),
+            arguments(8, List.of("dd"), "f", 6, "dd"),
+            arguments(3, List.of("aaa"), "e", 5, "aaa"),
+            arguments(3, List.of("aaa"), "E", 5, "aaa"),
+            arguments(7, List.of("abd", "bad", "g"), "bad", 7, "abd")
         );
     }
 
@@ -74,9 +174,9 @@ class AnalyzeServiceImplTest {
     @MethodSource("lexical")
     void testAnalyzeLexicalScenarios(List<String> orderedText, String text,
         Integer value, String closerText) {
-        when(textRepository.getOrderedText()).thenReturn(Single.just(orderedText));
-        when(textRepository.getOrderedValue()).thenReturn(Single.just(List.of(3)));
-        when(textRepository.getTextsWithValue(3)).thenReturn(Single.just(List.of("c")));
+        when(textRepository.getLexicalNeighbours(text)).thenReturn(neighbours(orderedText, text));
+        when(textRepository.getClosestValue(value)).thenReturn(Maybe.just(3));
+        when(textRepository.getTextsWithValue(3, 1)).thenReturn(Single.just(List.of("c")));
         when(textRepository.saveText(TextCache.of(text, value))).thenReturn(Future.succeededFuture());
         AnalyzeResponse response = analyzeService.analyze(text).blockingGet();
         assertEquals(AnalyzeResponse.of("c", closerText), response);
@@ -111,4 +211,33 @@ class AnalyzeServiceImplTest {
             arguments(List.of("abbc", "abef", "abhi", "abkl"), "ablm", 28, "abkl")
         );
     }
+
+    @ParameterizedTest
+    @MethodSource("lexical")
+    void testClosestLexicalWindowStartsWithClosest(List<String> orderedText, String text,
+        Integer value, String closerText) {
+        NavigableSet<String> ordered = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        ordered.addAll(orderedText);
+        LexicalWindow window = LexicalWindow.of(new ArrayList<>(ordered.headSet(text, true).descendingSet()),
+                new ArrayList<>(ordered.tailSet(text, false)));
+
+        List<String> closest = AnalyzeServiceImpl.closestLexical(text, window, ordered.size());
+        assertEquals(closerText, closest.get(0));
+        assertEquals(ordered, new TreeSet<>(closest));
+        assertEquals(closest.subList(0, 1), AnalyzeServiceImpl.closestLexical(text, window, 1));
+    }
+
+    @Test
+    void testAnalyzeTop() {
+        when(textRepository.getClosestByValue(7, 2))
+                .thenReturn(Single.just(List.of(TextCache.of("abd", 7), TextCache.of("h", 8))));
+        when(textRepository.getLexicalWindow("cd", 2))
+                .thenReturn(Single.just(LexicalWindow.of(List.of("bdf", "abd"), List.of("egi", "h"))));
+        when(textRepository.saveText(TextCache.of("cd", 7))).thenReturn(Future.succeededFuture());
+
+        AnalyzeTopResponse response = analyzeService.analyzeTop("cd", 2).blockingGet();
+        assertEquals(AnalyzeTopResponse.of(List.of("abd", "h"), List.of("bdf", "abd")), response);
+        verify(textRepository).saveText(TextCache.of("cd", 7));
+        assertEquals(1, registry.get("analyze.stage").tag("stage", "lookup_top").timer().count());
+    }
 }
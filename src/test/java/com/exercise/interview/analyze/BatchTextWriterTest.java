@@ -0,0 +1,164 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.sqlclient.PreparedQuery;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlClient;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class BatchTextWriterTest {
+    @Mock
+    SqlClient sqlClient;
+
+    @Mock
+    PreparedQuery<RowSet<Row>> preparedQuery;
+
+    @BeforeEach
+    void setUp() {
+        when(sqlClient.preparedQuery(anyString())).thenReturn(preparedQuery);
+        lenient().when(preparedQuery.execute(any(Tuple.class))).thenReturn(Future.succeededFuture());
+    }
+
+    @Test
+    void testFlushWhenBatchIsFull(Vertx vertx, VertxTestContext testContext) {
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(2, 60_000, 10));
+
+        Future.all(writer.write(TextCache.of("ab", 3)), writer.write(TextCache.of("c", 3)))
+                .onComplete(testContext.succeeding(f -> testContext.verify(() -> {
+                    ArgumentCaptor<Tuple> tuple = ArgumentCaptor.forClass(Tuple.class);
+                    verify(preparedQuery).execute(tuple.capture());
+                    assertArrayEquals(new String[] {"ab", "c"}, (String[]) tuple.getValue().getValue(0));
+                    assertArrayEquals(new Integer[] {3, 3}, (Integer[]) tuple.getValue().getValue(1));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testDrainOnClose(Vertx vertx, VertxTestContext testContext) {
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(2, 60_000, 10));
+
+        Future<Void> first = writer.write(TextCache.of("a", 1));
+        Future<Void> second = writer.write(TextCache.of("b", 2));
+        Future<Void> third = writer.write(TextCache.of("c", 3));
+        assertEquals(1, writer.queueSize());
+
+        writer.close()
+                .onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+                    assertTrue(first.succeeded() && second.succeeded() && third.succeeded());
+                    verify(preparedQuery, times(2)).execute(any(Tuple.class));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testSaturatedQueueShedsRequestsInsteadOfDroppingTexts(Vertx vertx, VertxTestContext testContext) {
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(10, 60_000, 2));
+        TextIndex textIndex = new HeapTextIndex();
+        AnalyzeService analyzeService = new AnalyzeServiceImpl(
+                new TextRepositoryImpl(new PgTextStore(null, writer, WarmUpOptions.of(10, 10), 0), null, textIndex),
+                new AnalyzeMetrics(new SimpleMeterRegistry()), LookupExecution.inline());
+
+        List<String> texts = List.of("a", "b", "c", "d", "e");
+        List<TestObserver<AnalyzeResponse>> requests = texts.stream()
+                .map(t -> analyzeService.analyze(t).test())
+                .collect(Collectors.toList());
+
+        writer.close().onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+            ArgumentCaptor<Tuple> tuples = ArgumentCaptor.forClass(Tuple.class);
+            verify(preparedQuery, times(2)).execute(tuples.capture());
+            List<String> inserted = tuples.getAllValues().stream()
+                    .flatMap(t -> Stream.of((String[]) t.getValue(0)))
+                    .collect(Collectors.toList());
+
+            for (int i = 0; i < texts.size(); i++) {
+                String text = texts.get(i);
+                TestObserver<AnalyzeResponse> request = requests.get(i).await();
+                if (request.values().isEmpty()) {
+                    request.assertError(WriteQueueFullException.class);
+                    assertFalse(inserted.contains(text), text);
+                } else {
+                    assertTrue(inserted.contains(text) && textIndex.contains(text), text);
+                }
+            }
+            requests.get(2).assertError(WriteQueueFullException.class);
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    void testWriteAllInsertedInBatchesWithinQueueBound(Vertx vertx, VertxTestContext testContext) {
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(2, 60_000, 4));
+
+        Future<Void> rejected = writer.writeAll(List.of(TextCache.of("a", 1), TextCache.of("b", 2),
+                TextCache.of("c", 3), TextCache.of("d", 4), TextCache.of("e", 5)));
+        assertTrue(rejected.cause() instanceof WriteQueueFullException);
+
+        writer.writeAll(List.of(TextCache.of("a", 1), TextCache.of("b", 2), TextCache.of("c", 3)))
+                .onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+                    ArgumentCaptor<Tuple> tuples = ArgumentCaptor.forClass(Tuple.class);
+                    verify(preparedQuery, times(2)).execute(tuples.capture());
+                    assertArrayEquals(new String[] {"a", "b"}, (String[]) tuples.getAllValues().get(0).getValue(0));
+                    assertArrayEquals(new String[] {"c"}, (String[]) tuples.getAllValues().get(1).getValue(0));
+                    assertEquals(0, writer.queueSize());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testInsertingTextsCountAgainstQueueBound(Vertx vertx) {
+        Promise<RowSet<Row>> inserted = Promise.promise();
+        when(preparedQuery.execute(any(Tuple.class))).thenReturn(inserted.future());
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(2, 60_000, 4));
+
+        Future<Void> batch = writer.writeAll(List.of(TextCache.of("a", 1), TextCache.of("b", 2), TextCache.of("c", 3)));
+        assertEquals(3, writer.queueSize());
+        assertTrue(writer.writeAll(List.of(TextCache.of("d", 4), TextCache.of("e", 5))).cause()
+                instanceof WriteQueueFullException);
+
+        inserted.complete();
+        assertTrue(batch.succeeded());
+        assertEquals(0, writer.queueSize());
+        writer.write(TextCache.of("d", 4));
+        assertEquals(1, writer.queueSize());
+    }
+
+    @Test
+    void testRejectWhenQueueIsFull(Vertx vertx) {
+        BatchTextWriter writer = new BatchTextWriter(vertx, sqlClient, WriteBehindOptions.of(10, 60_000, 1));
+
+        writer.write(TextCache.of("a", 1));
+        Future<Void> rejected = writer.write(TextCache.of("b", 2));
+
+        assertTrue(rejected.cause() instanceof WriteQueueFullException);
+        verify(preparedQuery).execute(any(Tuple.class));
+    }
+}
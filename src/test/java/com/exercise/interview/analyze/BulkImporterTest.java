@@ -0,0 +1,70 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class BulkImporterTest {
+    @Mock
+    TextStore textStore;
+
+    @TempDir
+    Path directory;
+
+    private final TextIndex textIndex = new HeapTextIndex();
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setUp(Vertx vertx) {
+        importer = new BulkImporter(vertx, new TextRepositoryImpl(textStore, null, textIndex), directory, 2, 2);
+    }
+
+    @Test
+    void testImportScoresDeduplicatesAndCaches(VertxTestContext testContext) throws IOException {
+        when(textStore.writeAll(anyList())).thenReturn(Future.succeededFuture());
+        textIndex.add(TextCache.of("cached", 34));
+        Files.write(directory.resolve("texts.txt"),
+                List.of("word", "WORD", "", "other", "bad1", "  éclair ", "cached", "b", "Word"));
+
+        importer.importFile("texts.txt").onComplete(testContext.succeeding(r -> testContext.verify(() -> {
+            assertEquals(BulkImporter.ImportResult.of(8, 1, 2, 4), r);
+            assertTrue(textIndex.contains("word"));
+            assertTrue(textIndex.contains("éclair"));
+            assertEquals(List.of("b"), textIndex.textsWithValue(2));
+            assertEquals(LexicalNeighbours.of("other", "word"), textIndex.lexicalNeighbours("p"));
+            verify(textStore, times(2)).writeAll(anyList());
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    void testImportOnlyReadsImportDirectory(VertxTestContext testContext) {
+        importer.importFile("../texts.txt").onComplete(testContext.failing(t -> testContext.verify(() -> {
+            assertInstanceOf(InvalidRequestException.class, t);
+            assertFalse(textIndex.contains("word"));
+            testContext.completeNow();
+        })));
+    }
+}
@@ -0,0 +1,147 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAnalyzeServiceTest {
+    @Mock
+    AnalyzeService delegate;
+
+    @Mock
+    TextRepository textRepository;
+
+    @Mock
+    TextStore textStore;
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TextRepositoryImpl texts;
+    CachingAnalyzeService analyzeService;
+
+    @BeforeEach
+    void setUp() {
+        texts = new TextRepositoryImpl(textStore, null, new HeapTextIndex());
+        analyzeService = new CachingAnalyzeService(delegate, textRepository, texts,
+                new AnalyzeMetrics(registry), 100);
+    }
+
+    private double lookups(String result) {
+        return registry.get("analyze.responses.lookups").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testCachedForSameEpoch() {
+        when(delegate.analyze(TextCache.of("Word", 60))).thenReturn(Single.just(AnalyzeResponse.of("a", "b")));
+        when(textRepository.saveText(any())).thenReturn(Future.succeededFuture());
+
+        assertEquals(AnalyzeResponse.of("a", "b"), analyzeService.analyze("Word").blockingGet());
+        assertEquals(AnalyzeResponse.of("a", "b"), analyzeService.analyze("wORD").blockingGet());
+
+        verify(delegate, times(1)).analyze(any(TextCache.class));
+        verify(textRepository).saveText(TextCache.of("wORD", 60));
+        assertEquals(1, lookups("miss"));
+        assertEquals(1, lookups("hit"));
+    }
+
+    @Test
+    void testRecomputedAfterCloserTextAdded() {
+        when(delegate.analyze(TextCache.of("word", 60)))
+                .thenReturn(Single.just(AnalyzeResponse.of("work", "worm")))
+                .thenReturn(Single.just(AnalyzeResponse.of("work", "wordy")));
+
+        assertEquals(AnalyzeResponse.of("work", "worm"), analyzeService.analyze("word").blockingGet());
+        texts.applyChanges(List.of(TextCache.of("wordy", 85)));
+        assertEquals(AnalyzeResponse.of("work", "wordy"), analyzeService.analyze("word").blockingGet());
+
+        verify(delegate, times(2)).analyze(any(TextCache.class));
+        assertEquals(1, lookups("stale"));
+    }
+
+    @Test
+    void testKeptAfterUnrelatedTextsAdded() {
+        when(delegate.analyze(TextCache.of("word", 60))).thenReturn(Single.just(AnalyzeResponse.of("work", "worm")));
+        when(textRepository.saveText(any())).thenReturn(Future.succeededFuture());
+
+        analyzeService.analyze("word").blockingGet();
+        texts.applyChanges(List.of(TextCache.of("apple", 50), TextCache.of("zzzzzz", 156)));
+        assertEquals(AnalyzeResponse.of("work", "worm"), analyzeService.analyze("word").blockingGet());
+        texts.applyChanges(List.of(TextCache.of("abc", 6)));
+        assertEquals(AnalyzeResponse.of("work", "worm"), analyzeService.analyze("word").blockingGet());
+
+        verify(delegate, times(1)).analyze(any(TextCache.class));
+        assertEquals(2, lookups("hit"));
+    }
+
+    /**
+     * Every response, cached or not, is the one computed by the uncached service from the texts cached at the time,
+     * while texts are added by other instances, and by the requests unless their saves are not cached.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testSameAsUncachedWhileTextsAdded(boolean requestsCached) {
+        TextRepository repository = texts;
+        if (requestsCached) {
+            when(textStore.write(any())).thenReturn(Future.succeededFuture());
+        } else {
+            repository = mock(TextRepository.class, AdditionalAnswers.delegatesTo(texts));
+            doReturn(Future.succeededFuture()).when(repository).saveText(any());
+        }
+        AnalyzeMetrics metrics = new AnalyzeMetrics(registry);
+        AnalyzeServiceImpl uncached = new AnalyzeServiceImpl(repository, metrics, LookupExecution.inline());
+        CachingAnalyzeService cached = new CachingAnalyzeService(uncached, repository, texts, metrics, 1000);
+        Random random = new Random(42);
+        texts.applyChanges(List.of(TextCache.of("m", 13)));
+
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(4) == 0) texts.applyChanges(List.of(randomText(random, 3)));
+
+            TextCache query = randomText(random, 2);
+            String value = uncached.closestValue(query.getCharValue()).blockingGet();
+            String lexical = AnalyzeServiceImpl.closestLexical(query.getText(),
+                    texts.getLexicalNeighbours(query.getText()).blockingGet()).blockingGet();
+            assertEquals(AnalyzeResponse.of(value, lexical), cached.analyze(query).blockingGet(), query.toString());
+        }
+
+        assertTrue(lookups("hit") > lookups("stale"), () -> lookups("hit") + " hits, " + lookups("stale") + " stale");
+    }
+
+    private static TextCache randomText(Random random, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(maxLength);
+        for (int i = 0; i < length; i++) text.append((char) ('a' + random.nextInt(26)));
+        return TextCache.of(text.toString(), AnalyzeServiceImpl.charValue(text.toString()));
+    }
+
+    @Test
+    void testFailureNotCached() {
+        when(delegate.analyze(TextCache.of("word", 60)))
+                .thenReturn(Single.error(new IllegalStateException()))
+                .thenReturn(Single.just(AnalyzeResponse.of("a", "b")));
+
+        analyzeService.analyze("word").onErrorComplete().blockingGet();
+        assertEquals(AnalyzeResponse.of("a", "b"), analyzeService.analyze("word").blockingGet());
+
+        assertEquals(2, lookups("miss"));
+    }
+}
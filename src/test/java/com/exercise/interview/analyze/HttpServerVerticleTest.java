@@ -0,0 +1,103 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class HttpServerVerticleTest {
+    private static final int PORT = 9897;
+
+    @Mock
+    TextStore textStore;
+
+    @Test
+    void testNotReadyDuringWarmUp(Vertx vertx, VertxTestContext testContext) {
+        Promise<Void> warmUp = Promise.promise();
+        when(textStore.open()).thenReturn(Future.succeededFuture());
+        when(textStore.load(eq(0L), ArgumentMatchers.<ObjLongConsumer<TextCache>>any())).thenAnswer(i -> {
+            i.<ObjLongConsumer<TextCache>>getArgument(1).accept(TextCache.of("word", 60), 1);
+            return warmUp.future();
+        });
+
+        TextIndex textIndex = new HeapTextIndex();
+        TextRepositoryImpl repository = new TextRepositoryImpl(textStore, new TextSnapshot(vertx, null), textIndex);
+        AnalyzeMetrics metrics = new AnalyzeMetrics(new SimpleMeterRegistry());
+        AtomicBoolean ready = new AtomicBoolean();
+        repository.loadTexts().onSuccess(v -> ready.set(true));
+
+        HttpServerVerticle verticle = new HttpServerVerticle(
+                new AnalyzeServiceImpl(repository, metrics, LookupExecution.inline()), metrics,
+                AdmissionControl.unbounded(), ready::get, null);
+        HttpClient client = vertx.createHttpClient();
+
+        vertx.deployVerticle(verticle, new DeploymentOptions().setConfig(new JsonObject().put("PORT", PORT)))
+                .flatMap(id -> ready(client))
+                .onComplete(testContext.succeeding(status -> testContext.verify(() -> {
+                    assertEquals(503, status);
+                    assertTrue(textIndex.contains("word"));
+                })))
+                .onSuccess(status -> warmUp.complete())
+                .flatMap(status -> ready(client))
+                .onComplete(testContext.succeeding(status -> testContext.verify(() -> {
+                    assertEquals(200, status);
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testRefusedBatchShedBeforeAnyResponse(Vertx vertx, VertxTestContext testContext) {
+        when(textStore.writeAll(anyList())).thenReturn(Future.failedFuture(new WriteQueueFullException("full")));
+
+        TextIndex textIndex = new HeapTextIndex();
+        textIndex.add(TextCache.of("c", 3));
+        AnalyzeMetrics metrics = new AnalyzeMetrics(new SimpleMeterRegistry());
+        HttpServerVerticle verticle = new HttpServerVerticle(new AnalyzeServiceImpl(
+                new TextRepositoryImpl(textStore, null, textIndex), metrics, LookupExecution.inline()), metrics,
+                AdmissionControl.unbounded(), () -> true, null);
+        HttpClient client = vertx.createHttpClient();
+
+        vertx.deployVerticle(verticle, new DeploymentOptions().setConfig(new JsonObject().put("PORT", PORT)))
+                .flatMap(id -> client.request(HttpMethod.POST, PORT, "localhost", "/analyze/batch"))
+                .flatMap(request -> request.send("{\"text\":\"ab\"}\n{\"text\":\"d\"}\n"))
+                .flatMap(response -> response.body().map(body -> {
+                    testContext.verify(() -> {
+                        assertEquals(503, response.statusCode());
+                        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+                        assertEquals(0, body.length());
+                    });
+                    return body;
+                }))
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    private static Future<Integer> ready(HttpClient client) {
+        return client.request(HttpMethod.GET, PORT, "localhost", "/ready")
+                .flatMap(HttpClientRequest::send)
+                .map(HttpClientResponse::statusCode);
+    }
+}
@@ -0,0 +1,158 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogTextStoreTest {
+    @TempDir
+    Path directory;
+
+    Vertx vertx = Vertx.vertx();
+    List<LogTextStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(s -> await(s.close().otherwiseEmpty()));
+        await(vertx.close());
+    }
+
+    private static <T> T await(Future<T> future) {
+        return future.toCompletionStage().toCompletableFuture().join();
+    }
+
+    private LogTextStore open(long segmentBytes) {
+        LogTextStore store = new LogTextStore(vertx,
+                LogOptions.of(directory, segmentBytes, 100, 1000, true, 0), WarmUpOptions.of(1000, 100000));
+        stores.add(store);
+        await(store.open());
+        return store;
+    }
+
+    private static Map<Long, TextCache> load(LogTextStore store, long afterId) {
+        Map<Long, TextCache> texts = new LinkedHashMap<>();
+        await(store.load(afterId, (text, id) -> texts.put(id, text)));
+        return texts;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testTextsLoadedAfterReopen() {
+        LogTextStore store = open(1 << 20);
+        await(store.write(TextCache.of("word", 60)));
+        await(store.writeAll(List.of(TextCache.of("other", 65), TextCache.of("b", 2))));
+        await(store.close());
+
+        LogTextStore reopened = open(1 << 20);
+        assertEquals(Map.of(1L, TextCache.of("word", 60), 2L, TextCache.of("other", 65), 3L, TextCache.of("b", 2)),
+                load(reopened, 0));
+        assertEquals(Map.of(3L, TextCache.of("b", 2)), load(reopened, 2));
+
+        await(reopened.write(TextCache.of("c", 3)));
+        assertEquals(Map.of(4L, TextCache.of("c", 3)), load(reopened, 3));
+    }
+
+    @Test
+    void testTextTooLongForARecordRefused() {
+        LogTextStore store = open(1 << 20);
+        await(store.write(TextCache.of("word", 60)));
+        String large = "a".repeat(LogTextStore.MAX_TEXT_BYTES + 1);
+        assertTrue(store.write(TextCache.of(large, large.length())).cause() instanceof InvalidRequestException);
+        assertTrue(store.writeAll(List.of(TextCache.of("b", 2), TextCache.of(large, large.length()))).cause()
+                instanceof InvalidRequestException);
+        String fitting = "a".repeat(LogTextStore.MAX_TEXT_BYTES);
+        await(store.writeAll(List.of(TextCache.of(fitting, fitting.length()), TextCache.of("other", 65))));
+        await(store.close());
+
+        LogTextStore reopened = open(1 << 20);
+        assertEquals(Map.of(1L, TextCache.of("word", 60), 2L, TextCache.of(fitting, fitting.length()),
+                3L, TextCache.of("other", 65)), load(reopened, 0));
+    }
+
+    @Test
+    void testTornRecordTruncated() throws IOException {
+        LogTextStore store = open(1 << 20);
+        await(store.writeAll(List.of(TextCache.of("word", 60), TextCache.of("other", 65))));
+        await(store.close());
+
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        LogTextStore reopened = open(1 << 20);
+        assertEquals(Map.of(1L, TextCache.of("word", 60)), load(reopened, 0));
+
+        await(reopened.write(TextCache.of("b", 2)));
+        assertEquals(Map.of(1L, TextCache.of("word", 60), 2L, TextCache.of("b", 2)), load(reopened, 0));
+    }
+
+    @Test
+    void testCorruptedRecordTruncated() throws IOException {
+        LogTextStore store = open(1 << 20);
+        await(store.writeAll(List.of(TextCache.of("word", 60), TextCache.of("other", 65), TextCache.of("b", 2))));
+        await(store.close());
+
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[8 + 12 + 4 + 8 + 12 + 1]++;
+        Files.write(segment, bytes);
+
+        LogTextStore reopened = open(1 << 20);
+        assertEquals(Map.of(1L, TextCache.of("word", 60)), load(reopened, 0));
+        assertEquals(8 + 12 + 4, Files.size(segment));
+    }
+
+    @Test
+    void testSegmentsRolled() throws IOException {
+        LogTextStore store = open(64);
+        for (int i = 0; i < 10; i++) await(store.write(TextCache.of("text" + (char) ('a' + i), 70 + i)));
+
+        assertTrue(segments().size() > 1);
+        assertEquals(10, load(store, 0).size());
+        assertEquals(List.of(8L, 9L, 10L), new ArrayList<>(load(store, 7).keySet()));
+    }
+
+    @Test
+    void testCompactionRemovesTextsStoredBefore() throws IOException {
+        LogTextStore store = open(64);
+        await(store.write(TextCache.of("word", 60)));
+        await(store.write(TextCache.of("other", 65)));
+        await(store.write(TextCache.of("WORD", 60)));
+        await(store.write(TextCache.of("other", 65)));
+        await(store.write(TextCache.of("last", 48)));
+        int segments = segments().size();
+
+        await(store.compact());
+
+        assertEquals(segments, segments().size());
+        assertEquals(Map.of(1L, TextCache.of("word", 60), 2L, TextCache.of("other", 65), 5L, TextCache.of("last", 48)),
+                load(store, 0));
+        await(store.close());
+
+        assertEquals(3, load(open(64), 0).size());
+    }
+}
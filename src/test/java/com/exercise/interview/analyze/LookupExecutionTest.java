@@ -0,0 +1,88 @@
+package com.exercise.interview.analyze;
+
+import io.reactivex.rxjava3.core.Single;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LookupExecutionTest {
+    ThreadPoolExecutor executor = LookupExecution.boundedExecutor(1, 16);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static Single<String> currentThread() {
+        return Single.fromCallable(() -> Thread.currentThread().getName());
+    }
+
+    private static Single<String> sleeping(long millis) {
+        return Single.fromCallable(() -> {
+            Thread.sleep(millis);
+            return Thread.currentThread().getName();
+        });
+    }
+
+    @Test
+    void testInline() {
+        assertEquals(Thread.currentThread().getName(), LookupExecution.inline().execute(currentThread()).blockingGet());
+    }
+
+    @Test
+    void testOffload() {
+        LookupExecution execution = new LookupExecution(LookupExecution.Mode.OFFLOAD, executor,
+                0, 0);
+
+        assertEquals("analyze-lookup-1", execution.execute(currentThread()).blockingGet());
+    }
+
+    @Test
+    void testAdaptiveOffloadsSlowLookups() {
+        LookupExecution execution = new LookupExecution(LookupExecution.Mode.ADAPTIVE, executor,
+                1_000_000, 0);
+
+        assertEquals(Thread.currentThread().getName(), execution.execute(sleeping(20)).blockingGet());
+        assertTrue(execution.isOffloading());
+        assertEquals("analyze-lookup-1", execution.execute(currentThread()).blockingGet());
+
+        for (int i = 0; i < 100 && execution.isOffloading(); i++) execution.execute(currentThread()).blockingGet();
+        assertFalse(execution.isOffloading());
+        assertEquals(Thread.currentThread().getName(), execution.execute(currentThread()).blockingGet());
+    }
+
+    @Test
+    void testOffloadShedsAfterQueueWait() {
+        LookupExecution execution = new LookupExecution(LookupExecution.Mode.OFFLOAD, executor,
+                0, TimeUnit.MILLISECONDS.toNanos(50));
+
+        execution.execute(sleeping(200)).subscribe();
+        OverloadedException e = assertThrows(OverloadedException.class,
+                () -> execution.execute(currentThread()).blockingGet());
+        assertEquals("queue_wait", e.getReason());
+        assertEquals("analyze-lookup-1", execution.execute(currentThread()).blockingGet());
+    }
+
+    @Test
+    void testOffloadShedsBeyondQueue() {
+        ThreadPoolExecutor small = LookupExecution.boundedExecutor(1, 1);
+        try {
+            LookupExecution execution = new LookupExecution(LookupExecution.Mode.OFFLOAD, small, 0, 0);
+            execution.execute(sleeping(200)).subscribe();
+            execution.execute(currentThread()).subscribe();
+
+            OverloadedException e = assertThrows(OverloadedException.class,
+                    () -> execution.execute(currentThread()).blockingGet());
+            assertEquals("lookup_queue", e.getReason());
+        } finally {
+            small.shutdown();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedStatement;
+import io.vertx.sqlclient.Query;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class PgTextStoreTest {
+    private static final int FETCH_SIZE = 10;
+
+    @Mock
+    Pool pool;
+
+    @Mock
+    Query<RowSet<Row>> query;
+
+    @Mock
+    SqlConnection connection;
+
+    @Mock
+    PreparedStatement statement;
+
+    /**
+     * Committed rows of the table by id, as seen by the next query.
+     */
+    private final NavigableMap<Long, TextCache> committed = new ConcurrentSkipListMap<>();
+    private final List<PagedRowStream> streams = new ArrayList<>();
+    private final TextIndex textIndex = new HeapTextIndex();
+    private TextRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp(Vertx vertx) {
+        when(pool.query(anyString())).thenReturn(query);
+        when(query.execute()).thenReturn(Future.succeededFuture());
+        when(pool.withTransaction(ArgumentMatchers.<Function<SqlConnection, Future<Void>>>any()))
+                .thenAnswer(i -> i.<Function<SqlConnection, Future<Void>>>getArgument(0).apply(connection));
+        when(connection.prepare(anyString())).thenReturn(Future.succeededFuture(statement));
+        when(statement.createStream(eq(FETCH_SIZE), any(Tuple.class))).thenAnswer(i -> {
+            PagedRowStream rows = new PagedRowStream(vertx, committed.tailMap(i.<Tuple>getArgument(1).getLong(0), false)
+                    .entrySet().stream()
+                    .map(e -> row(e.getValue(), e.getKey()))
+                    .collect(Collectors.toList()));
+            streams.add(rows);
+            return rows;
+        });
+
+        repository = new TextRepositoryImpl(new PgTextStore(pool, null, WarmUpOptions.of(FETCH_SIZE, 10), 5),
+                new TextSnapshot(vertx, null), textIndex);
+    }
+
+    @Test
+    void testWarmUpStreamsMoreRowsThanFetchSize(VertxTestContext testContext) {
+        List<TextCache> texts = IntStream.range(0, 25)
+                .mapToObj(i -> "ab".repeat(i % 3 + 1) + (char) ('a' + i))
+                .map(PgTextStoreTest::text)
+                .collect(Collectors.toList());
+        texts.forEach(t -> committed.put(committed.size() + 1L, t));
+
+        repository.loadTexts().onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+            assertEquals(3, streams.get(0).pages);
+            assertEquals(texts.size(), textIndex.size());
+            assertTrue(texts.stream().allMatch(t -> textIndex.contains(t.getText())));
+            assertTrue(texts.stream().allMatch(t -> textIndex.textsWithValue(t.getCharValue(), 25)
+                    .contains(t.getText())));
+            testContext.completeNow();
+        })));
+    }
+
+    @Test
+    void testRowCommittedAfterHigherIdLoadedLater(VertxTestContext testContext) {
+        committed.put(1L, text("first"));
+        committed.put(3L, text("third"));
+
+        repository.loadTexts()
+                .onSuccess(v -> testContext.verify(() -> assertFalse(textIndex.contains("second"))))
+                .flatMap(v -> {
+                    committed.put(2L, text("second"));
+                    return repository.loadChanges();
+                })
+                .onComplete(testContext.succeeding(v -> testContext.verify(() -> {
+                    assertTrue(textIndex.contains("second"));
+                    assertEquals(3, textIndex.size());
+                    testContext.completeNow();
+                })));
+    }
+
+    private static TextCache text(String text) {
+        return TextCache.of(text, AnalyzeServiceImpl.charValue(text));
+    }
+
+    private static Row row(TextCache text, long id) {
+        Row row = mock(Row.class);
+        when(row.getString("txt")).thenReturn(text.getText());
+        when(row.getInteger("value")).thenReturn(text.getCharValue());
+        when(row.getLong("id")).thenReturn(id);
+        return row;
+    }
+
+    /**
+     * Stream handing the rows a fetch at a time, each on its own turn of the event loop like a cursor would.
+     */
+    private static class PagedRowStream implements RowStream<Row> {
+        private final Vertx vertx;
+        private final List<Row> rows;
+        private Handler<Row> handler;
+        private Handler<Void> endHandler;
+        private int next;
+        private int pages;
+
+        PagedRowStream(Vertx vertx, List<Row> rows) {
+            this.vertx = vertx;
+            this.rows = rows;
+        }
+
+        private void fetchPage() {
+            pages++;
+            for (int end = Math.min(rows.size(), next + FETCH_SIZE); next < end; next++) handler.handle(rows.get(next));
+
+            if (next < rows.size()) vertx.runOnContext(v -> fetchPage());
+            else endHandler.handle(null);
+        }
+
+        @Override
+        public RowStream<Row> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public RowStream<Row> handler(Handler<Row> handler) {
+            this.handler = handler;
+            vertx.runOnContext(v -> fetchPage());
+            return this;
+        }
+
+        @Override
+        public RowStream<Row> pause() {
+            return this;
+        }
+
+        @Override
+        public RowStream<Row> resume() {
+            return this;
+        }
+
+        @Override
+        public RowStream<Row> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+
+        @Override
+        public RowStream<Row> fetch(long amount) {
+            return this;
+        }
+
+        @Override
+        public Future<Void> close() {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void close(Handler<AsyncResult<Void>> completionHandler) {
+            completionHandler.handle(Future.succeededFuture());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class ShardedTextRepositoryTest {
+    private static final int SHARDS = 3;
+    private static final String ALPHABET = "abcdeABCDE";
+
+    @Mock
+    TextStore textStore;
+
+    private final AnalyzeMetrics metrics = new AnalyzeMetrics(new SimpleMeterRegistry());
+    private ShardedTextRepository shardedRepository;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext) {
+        lenient().when(textStore.write(any())).thenReturn(Future.succeededFuture());
+        lenient().when(textStore.writeAll(anyList())).thenReturn(Future.succeededFuture());
+        lenient().when(textStore.close()).thenReturn(Future.succeededFuture());
+
+        List<Future<String>> deployments = IntStream.range(0, SHARDS)
+                .mapToObj(id -> vertx.deployVerticle(new ShardVerticle(id, repository(
+                                new PartitionedTextIndex(new HeapTextIndex(), id, SHARDS)), false),
+                        new DeploymentOptions()))
+                .collect(Collectors.toList());
+
+        shardedRepository = new ShardedTextRepository(vertx, SHARDS, 5000);
+        Future.all(deployments)
+                .flatMap(c -> shardedRepository.loadTexts())
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    private TextRepository repository(TextIndex textIndex) {
+        return new TextRepositoryImpl(textStore, null, textIndex);
+    }
+
+    @Test
+    void testSameAsSingleRepository(VertxTestContext testContext) {
+        TextRepository singleRepository = repository(new HeapTextIndex());
+        Random random = new Random(42);
+        List<TextCache> corpus = randomTexts(random, 2000);
+        List<String> queries = randomTexts(random, 500).stream()
+                .map(TextCache::getText)
+                .collect(Collectors.toList());
+
+        Future.all(shardedRepository.saveTexts(corpus), singleRepository.saveTexts(corpus))
+                .onComplete(testContext.succeeding(c -> {
+                    List<AnalyzeResponse> expected =
+                            new AnalyzeServiceImpl(singleRepository, metrics, LookupExecution.inline())
+                            .analyzeBatch(queries)
+                            .toList()
+                            .blockingGet();
+                    new AnalyzeServiceImpl(shardedRepository, metrics, LookupExecution.inline())
+                            .analyzeBatch(queries)
+                            .toList()
+                            .subscribe(actual -> testContext.verify(() -> {
+                                assertEquals(expected, actual);
+                                testContext.completeNow();
+                            }), testContext::failNow);
+                }));
+    }
+
+    @Test
+    void testEmptyShards(VertxTestContext testContext) {
+        new AnalyzeServiceImpl(shardedRepository, metrics, LookupExecution.inline()).analyze("word")
+                .subscribe(r -> testContext.verify(() -> {
+                    assertEquals(AnalyzeResponse.of(null, null), r);
+                    testContext.completeNow();
+                }), testContext::failNow);
+    }
+
+    @Test
+    void testSaveTextOnOwningShard(VertxTestContext testContext) {
+        shardedRepository.saveText(TextCache.of("Word", 60))
+                .flatMap(v -> shardedRepository.saveText(TextCache.of("WORD", 60)))
+                .onComplete(testContext.succeeding(v -> shardedRepository.getLexicalNeighbours("word")
+                        .subscribe(n -> testContext.verify(() -> {
+                            assertEquals(LexicalNeighbours.of("Word", "Word"), n);
+                            verify(textStore, times(1)).write(any());
+                            testContext.completeNow();
+                        }), testContext::failNow)));
+    }
+
+    private static List<TextCache> randomTexts(Random random, int count) {
+        List<TextCache> texts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 1 + random.nextInt(5);
+            int value = 0;
+            for (int j = 0; j < length; j++) {
+                char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+                text.append(c);
+                value += Character.toLowerCase(c) - 'a' + 1;
+            }
+            texts.add(TextCache.of(text.toString(), value));
+        }
+        return texts;
+    }
+}
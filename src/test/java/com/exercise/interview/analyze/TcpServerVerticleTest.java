@@ -0,0 +1,85 @@
+package com.exercise.interview.analyze;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Single;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class TcpServerVerticleTest {
+    private static final int PORT = 9898;
+
+    @Mock
+    AnalyzeService analyzeService;
+
+    private Future<BinaryAnalyzeClient> deploy(Vertx vertx, AdmissionControl admissionControl) {
+        TcpServerVerticle verticle = new TcpServerVerticle(analyzeService,
+                new AnalyzeMetrics(new SimpleMeterRegistry()), admissionControl);
+        return vertx.deployVerticle(verticle, new DeploymentOptions().setConfig(new JsonObject().put("TCP_PORT", PORT)))
+                .flatMap(id -> BinaryAnalyzeClient.connect(vertx, "localhost", PORT));
+    }
+
+    @Test
+    void testPipelinedResponsesOutOfOrder(Vertx vertx, VertxTestContext testContext) {
+        when(analyzeService.analyze("slow"))
+                .thenReturn(Single.just(AnalyzeResponse.of("slower", "slowest")).delay(200, TimeUnit.MILLISECONDS));
+        when(analyzeService.analyze("fast")).thenReturn(Single.just(AnalyzeResponse.of(null, "faster")));
+        List<String> completed = new CopyOnWriteArrayList<>();
+
+        deploy(vertx, AdmissionControl.unbounded())
+                .flatMap(client -> Future.all(
+                        client.analyze("slow").onSuccess(r -> completed.add("slow")),
+                        client.analyze("fast").onSuccess(r -> completed.add("fast"))))
+                .onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+                    assertEquals(AnalyzeResponse.of("slower", "slowest"), all.resultAt(0));
+                    assertEquals(AnalyzeResponse.of(null, "faster"), all.resultAt(1));
+                    assertEquals(List.of("fast", "slow"), completed);
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testInvalidText(Vertx vertx, VertxTestContext testContext) {
+        when(analyzeService.analyze("bad1")).thenThrow(new InvalidRequestException("Invalid character 1 on text: bad1"));
+
+        deploy(vertx, AdmissionControl.unbounded())
+                .flatMap(client -> client.analyze("bad1"))
+                .onComplete(testContext.failing(t -> testContext.verify(() -> {
+                    assertInstanceOf(InvalidRequestException.class, t);
+                    assertEquals("Invalid character 1 on text: bad1", t.getMessage());
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testShedOverInFlightBudget(Vertx vertx, VertxTestContext testContext) {
+        when(analyzeService.analyze("slow"))
+                .thenReturn(Single.just(AnalyzeResponse.of("slow", "slow")).delay(200, TimeUnit.MILLISECONDS));
+
+        deploy(vertx, new AdmissionControl(1, 0, () -> 0))
+                .onComplete(testContext.succeeding(client -> {
+                    client.analyze("slow");
+                    client.analyze("other").onComplete(testContext.failing(t -> testContext.verify(() -> {
+                        assertInstanceOf(OverloadedException.class, t);
+                        assertEquals("in_flight", ((OverloadedException) t).getReason());
+                        testContext.completeNow();
+                    })));
+                }));
+    }
+}
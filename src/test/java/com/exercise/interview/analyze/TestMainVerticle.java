@@ -2,6 +2,10 @@ package com.exercise.interview.analyze;
 
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -9,6 +13,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @ExtendWith(VertxExtension.class)
 class TestMainVerticle {
 
@@ -23,4 +29,19 @@ class TestMainVerticle {
     void verticle_deployed(Vertx vertx, VertxTestContext testContext) throws Throwable {
         testContext.completeNow();
     }
+
+    @Test
+    void metrics_scraped(Vertx vertx, VertxTestContext testContext) {
+        HttpClient client = vertx.createHttpClient();
+        client.request(HttpMethod.POST, 8888, "localhost", "/analyze")
+            .flatMap(r -> r.send("{\"text\":\"word\"}"))
+            .flatMap(r -> client.request(HttpMethod.GET, 8888, "localhost", "/metrics"))
+            .flatMap(HttpClientRequest::send)
+            .flatMap(HttpClientResponse::body)
+            .onComplete(testContext.succeeding(body -> testContext.verify(() -> {
+                assertTrue(body.toString().contains("analyze_stage_seconds_count{stage=\"lookup\",}"));
+                assertTrue(body.toString().contains("analyze_cache_texts"));
+                testContext.completeNow();
+            })));
+    }
 }
@@ -0,0 +1,130 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith({VertxExtension.class, MockitoExtension.class})
+class TextChangeFeedTest {
+    @Mock
+    TextStore textStore;
+
+    @Mock
+    TextStore subscriberStore;
+
+    private final TextIndex publisherIndex = new HeapTextIndex();
+    private final TextIndex subscriberIndex = new HeapTextIndex();
+    private TextRepositoryImpl publisher;
+    private TextRepositoryImpl subscriber;
+    private TextChangeFeed subscriberFeed;
+    private Context subscriberContext;
+
+    @BeforeEach
+    void setUp(Vertx vertx, VertxTestContext testContext) {
+        lenient().when(textStore.write(any())).thenReturn(Future.succeededFuture());
+        lenient().when(textStore.writeAll(anyList())).thenReturn(Future.succeededFuture());
+        lenient().when(textStore.load(anyLong(), any())).thenReturn(Future.succeededFuture());
+        lenient().when(subscriberStore.load(anyLong(), any())).thenReturn(Future.succeededFuture());
+
+        TextChangeFeed publisherFeed = new TextChangeFeed(vertx, 2, 10, 60_000);
+        publisher = new TextRepositoryImpl(new PublishingTextStore(textStore, publisherFeed), null, publisherIndex);
+        subscriber = spy(new TextRepositoryImpl(subscriberStore, null, subscriberIndex));
+        subscriberFeed = new TextChangeFeed(vertx, 2, 10, 60_000);
+        subscriberContext = vertx.getOrCreateContext();
+
+        Promise<Void> subscribed = Promise.promise();
+        subscriberContext.runOnContext(v -> subscriberFeed.start(subscriber).onComplete(subscribed));
+        Future.all(publisherFeed.start(publisher), subscribed.future())
+                .onComplete(testContext.succeedingThenComplete());
+    }
+
+    /**
+     * Runs the assertions on the context of the subscriber once the message it is receiving is handled.
+     */
+    private void verifySubscriber(VertxTestContext testContext, VertxTestContext.ExecutionBlock assertions) {
+        subscriberContext.runOnContext(v -> testContext.verify(() -> {
+            assertions.apply();
+            testContext.completeNow();
+        }));
+    }
+
+    @Test
+    void testStoredTextsCachedByOtherInstances(VertxTestContext testContext) {
+        publisher.saveText(TextCache.of("word", 60))
+                .flatMap(v -> publisher.saveTexts(List.of(TextCache.of("other", 63), TextCache.of("abc", 6),
+                        TextCache.of("Word", 60))));
+
+        verify(subscriber, timeout(1000)).applyChanges(argThat(texts -> texts.contains(TextCache.of("abc", 6))));
+        verifySubscriber(testContext, () -> {
+            assertEquals(3, subscriberIndex.size());
+            assertTrue(subscriberIndex.contains("other"));
+            assertEquals(LexicalNeighbours.of("abc", "other"), subscriberIndex.lexicalNeighbours("b"));
+            assertEquals(3, subscriberFeed.appliedTexts());
+            assertEquals(0, subscriberFeed.gaps());
+            verify(subscriberStore, never()).load(anyLong(), any());
+        });
+    }
+
+    @Test
+    void testGapLoadsStoredTexts(Vertx vertx, VertxTestContext testContext) {
+        JsonObject first = batch(1, TextCache.of("word", 60));
+        JsonObject third = batch(3, TextCache.of("other", 63));
+
+        vertx.eventBus().publish(TextChangeFeed.ADDRESS, first);
+        vertx.eventBus().publish(TextChangeFeed.ADDRESS, third);
+
+        verify(subscriberStore, timeout(1000)).load(eq(0L), ArgumentMatchers.<ObjLongConsumer<TextCache>>any());
+        verifySubscriber(testContext, () -> {
+            assertTrue(subscriberIndex.contains("word"));
+            assertTrue(subscriberIndex.contains("other"));
+            assertEquals(1, subscriberFeed.gaps());
+        });
+    }
+
+    @Test
+    void testHeartbeatPastLastBatchLoadsStoredTexts(Vertx vertx, VertxTestContext testContext) {
+        vertx.eventBus().publish(TextChangeFeed.ADDRESS, batch(1, TextCache.of("word", 60)));
+        vertx.eventBus().publish(TextChangeFeed.ADDRESS, heartbeat(1));
+        vertx.eventBus().publish(TextChangeFeed.ADDRESS, heartbeat(2));
+
+        verify(subscriberStore, timeout(1000)).load(eq(0L), ArgumentMatchers.<ObjLongConsumer<TextCache>>any());
+        verifySubscriber(testContext, () -> assertEquals(1, subscriberFeed.gaps()));
+    }
+
+    private static JsonObject heartbeat(long sequence) {
+        return new JsonObject()
+                .put("node", "other-node")
+                .put("sequence", sequence);
+    }
+
+    private static JsonObject batch(long sequence, TextCache text) {
+        return heartbeat(sequence).put("texts", new JsonArray().add(ShardVerticle.toJson(text)));
+    }
+}
@@ -0,0 +1,266 @@
+package com.exercise.interview.analyze;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextIndexTest {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZéÉßµÿĀā";
+    private static final String PREFIX_ALPHABET = "abAB";
+
+    static Stream<Supplier<TextIndex>> indexes() {
+        return Stream.of(
+            () -> new ArenaTextIndex(64L * 1024 * 1024),
+            () -> new HeapTextIndex(new RadixTrieLexicalIndex()),
+            () -> new TieredTextIndex(tempDirectory(), HeapTextIndex::new, 16 * 1024, 3)
+        );
+    }
+
+    private static Path tempDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("tiers");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void testSameAsHeapIndex(Supplier<TextIndex> supplier) {
+        assertSameAsHeapIndex(supplier.get(), ALPHABET, 6);
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void testSameAsHeapIndexWithSharedPrefixes(Supplier<TextIndex> supplier) {
+        assertSameAsHeapIndex(supplier.get(), PREFIX_ALPHABET, 12);
+    }
+
+    @Test
+    void testBulkAddSameAsAdd() {
+        TextIndex expected = new HeapTextIndex();
+        TextIndex actual = new HeapTextIndex();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            TextCache text = randomText(random, ALPHABET, 6);
+            expected.add(text);
+            actual.add(text);
+        }
+
+        NavigableMap<String, TextCache> bulk = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        int added = 0;
+        for (int i = 0; i < 5000; i++) {
+            TextCache text = randomText(random, ALPHABET, 6);
+            if (bulk.putIfAbsent(text.getText(), text) == null && expected.add(text)) added++;
+        }
+        assertEquals(added, actual.addAll(new ArrayList<>(bulk.values())));
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < 2000; i++) {
+            TextCache query = randomText(random, ALPHABET, 6);
+            assertEquals(expected.lexicalNeighbours(query.getText()), actual.lexicalNeighbours(query.getText()));
+
+            long value = expected.closestValue(query.getCharValue());
+            assertEquals(value, actual.closestValue(query.getCharValue()));
+            assertEquals(expected.textsWithValue((int) value), actual.textsWithValue((int) value));
+        }
+    }
+
+    private static void assertSameAsHeapIndex(TextIndex actual, String alphabet, int maxLength) {
+        assertSameAsHeapIndex(new HeapTextIndex(), actual, alphabet, maxLength);
+    }
+
+    private static void assertSameAsHeapIndex(TextIndex expected, TextIndex actual, String alphabet, int maxLength) {
+        Random random = new Random(42);
+
+        assertEquals(expected.lexicalNeighbours("ab"), actual.lexicalNeighbours("ab"));
+        for (int i = 0; i < 5000; i++) {
+            TextCache text = randomText(random, alphabet, maxLength);
+            assertEquals(expected.add(text), actual.add(text), text.toString());
+        }
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < 2000; i++) {
+            TextCache query = randomText(random, alphabet, maxLength);
+            assertEquals(expected.contains(query.getText()), actual.contains(query.getText()));
+            assertEquals(expected.lexicalNeighbours(query.getText()), actual.lexicalNeighbours(query.getText()));
+
+            long value = expected.closestValue(query.getCharValue());
+            assertEquals(value, actual.closestValue(query.getCharValue()));
+            assertEquals(expected.textsWithValue((int) value), actual.textsWithValue((int) value));
+        }
+
+        List<TextCache> texts = new ArrayList<>();
+        actual.forEach(texts::add);
+        assertEquals(expected.size(), texts.size());
+        texts.forEach(t -> assertTrue(expected.contains(t.getText())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void testTopKSameAsFullScan(Supplier<TextIndex> supplier) {
+        assertTopKSameAsFullScan(supplier.get());
+    }
+
+    @Test
+    void testSkipListTopKSameAsFullScan() {
+        assertTopKSameAsFullScan(new HeapTextIndex());
+    }
+
+    private static void assertTopKSameAsFullScan(TextIndex index) {
+        Random random = new Random(42);
+        for (int i = 0; i < 3000; i++) index.add(randomText(random, PREFIX_ALPHABET, 10));
+        List<TextCache> all = new ArrayList<>();
+        index.forEach(all::add);
+        NavigableSet<String> ordered = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        all.forEach(t -> ordered.add(t.getText()));
+
+        for (int i = 0; i < 500; i++) {
+            TextCache query = randomText(random, PREFIX_ALPHABET, 10);
+            int k = 1 + random.nextInt(50);
+
+            assertEquals(first(ordered.headSet(query.getText(), true).descendingSet(), k),
+                    index.lexicalBelow(query.getText(), k), query.getText());
+            assertEquals(first(ordered.tailSet(query.getText(), false), k),
+                    index.lexicalAbove(query.getText(), k), query.getText());
+
+            List<TextCache> byValue = new ArrayList<>(all);
+            byValue.sort(Comparator.<TextCache>comparingLong(t -> Math.abs(t.getCharValue() - query.getCharValue()))
+                    .thenComparing(TextCache::getCharValue, Comparator.reverseOrder())
+                    .thenComparing(TextCache::getText, String.CASE_INSENSITIVE_ORDER));
+            assertEquals(byValue.subList(0, k), index.closestByValue(query.getCharValue(), k));
+        }
+    }
+
+    private static List<String> first(Iterable<String> texts, int limit) {
+        List<String> result = new ArrayList<>();
+        for (String text : texts) {
+            if (result.size() == limit) break;
+            result.add(text);
+        }
+        return result;
+    }
+
+    @ParameterizedTest
+    @MethodSource("indexes")
+    void testClear(Supplier<TextIndex> supplier) {
+        TextIndex index = supplier.get();
+        index.add(TextCache.of("ab", 3));
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.contains("ab"));
+        assertEquals(LexicalNeighbours.of(null, null), index.lexicalNeighbours("ab"));
+        assertEquals(ValueIndex.NONE, index.closestValue(3));
+    }
+
+    @Test
+    void testArenaBudget() {
+        ArenaTextIndex index = new ArenaTextIndex(1024 * 1024);
+        String text = "a".repeat(1000);
+        int added = 0;
+        while (index.overflowTexts() == 0) assertTrue(index.add(TextCache.of(text + added++, 1000)));
+        for (int i = 0; i < 10; i++) assertTrue(index.add(TextCache.of(text + added++, 1000)));
+
+        assertEquals(1024 * 1024, index.allocatedBytes());
+        assertEquals(11, index.overflowTexts());
+        assertEquals(added, index.size());
+        assertFalse(index.add(TextCache.of(text + (added - 1), 1000)));
+        assertTrue(index.contains(text + (added - 1)));
+        assertEquals(added, index.textsWithValue(1000).size());
+    }
+
+    @Test
+    void testArenaOverflowSameAsHeapIndex() {
+        ArenaTextIndex index = new ArenaTextIndex(TextArena.CHUNK_SIZE);
+        TextIndex expected = new HeapTextIndex();
+        String filler = "z".repeat(1000);
+        for (int i = 0; index.overflowTexts() == 0; i++) {
+            TextCache text = TextCache.of(filler + i, 1000);
+            expected.add(text);
+            index.add(text);
+        }
+
+        assertSameAsHeapIndex(expected, index, ALPHABET, 6);
+        assertTrue(index.overflowTexts() > 1);
+    }
+
+    @Test
+    void testTextLargerThanArenaChunkOnHeap() {
+        ArenaTextIndex index = new ArenaTextIndex(TextArena.CHUNK_SIZE);
+        String large = "a".repeat(TextArena.CHUNK_SIZE);
+        assertTrue(index.add(TextCache.of(large, large.length())));
+        assertTrue(index.add(TextCache.of("word", 60)));
+
+        assertEquals(1, index.overflowTexts());
+        assertEquals(TextArena.CHUNK_SIZE, index.allocatedBytes());
+        assertEquals(LexicalNeighbours.of(large, "word"), index.lexicalNeighbours("b"));
+        assertTrue(index.add(TextCache.of("other", 65)));
+        assertEquals(1, index.overflowTexts());
+    }
+
+    @Test
+    void testArenaBudgetBelowChunkRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new ArenaTextIndex(TextArena.CHUNK_SIZE - 1));
+    }
+
+    @Test
+    void testTieredIndexSpillsAndMerges() throws Exception {
+        TieredTextIndex index = new TieredTextIndex(tempDirectory(), HeapTextIndex::new, 16 * 1024, 3);
+        TextIndex expected = new HeapTextIndex();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            TextCache text = randomText(random, ALPHABET, 8);
+            assertEquals(expected.add(text), index.add(text), text.toString());
+        }
+        index.awaitSpills();
+
+        assertTrue(index.segments() > 0 && index.segments() <= 3, "segments: " + index.segments());
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < 2000; i++) {
+            TextCache query = randomText(random, ALPHABET, 8);
+            assertEquals(expected.contains(query.getText()), index.contains(query.getText()));
+            assertEquals(expected.lexicalNeighbours(query.getText()), index.lexicalNeighbours(query.getText()));
+            assertEquals(expected.textsWithValue(query.getCharValue()), index.textsWithValue(query.getCharValue()));
+        }
+
+        index.clear();
+        index.awaitSpills();
+        assertEquals(0, index.segments());
+        assertFalse(index.contains(expected.lexicalNeighbours("m").getFloor()));
+    }
+
+    private static TextCache randomText(Random random, String alphabet, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            text.append(c);
+            value += Character.toLowerCase(c) - 'a' + 1;
+        }
+        return TextCache.of(text.toString(), value);
+    }
+}
@@ -0,0 +1,105 @@
+package com.exercise.interview.analyze;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextKernelTest {
+    private static final String LETTERS = "abcxyzABCXYZéÉßµǅΩωЖж";
+    private static final String INVALID = "0 @[`{-×";
+
+    @Test
+    void testCharValueSameAsScalar() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String text = randomText(random, LETTERS, 1 + random.nextInt(20));
+            assertEquals(scalarCharValue(text), TextKernel.charValue(text), text);
+        }
+    }
+
+    @Test
+    void testCharValueRejectsFirstInvalidChar() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000; i++) {
+            StringBuilder text = new StringBuilder(randomText(random, LETTERS, 1 + random.nextInt(20)));
+            text.insert(random.nextInt(text.length() + 1), INVALID.charAt(random.nextInt(INVALID.length())));
+            text.insert(random.nextInt(text.length() + 1), INVALID.charAt(random.nextInt(INVALID.length())));
+
+            InvalidRequestException expected =
+                    assertThrows(InvalidRequestException.class, () -> scalarCharValue(text.toString()));
+            InvalidRequestException actual =
+                    assertThrows(InvalidRequestException.class, () -> TextKernel.charValue(text.toString()));
+            assertEquals(expected.getMessage(), actual.getMessage());
+        }
+    }
+
+    @Test
+    void testIsCloserSameAsScalar() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String alphabet = random.nextBoolean() ? "abAB" : LETTERS;
+            String prefix = randomText(random, alphabet, random.nextInt(10));
+            String text = prefix + randomText(random, alphabet, random.nextInt(10));
+            String lhs = prefix + randomText(random, alphabet, random.nextInt(10));
+            String rhs = prefix + randomText(random, alphabet, random.nextInt(10));
+
+            assertEquals(scalarIsCloser(text, lhs, rhs), TextKernel.isCloser(text, lhs, rhs),
+                    text + " " + lhs + " " + rhs);
+        }
+    }
+
+    @Test
+    void testFoldCase() {
+        String lowerCase = "alreadylowercase";
+        assertSame(lowerCase, TextKernel.foldCase(lowerCase));
+        assertEquals("mixedcaseéжß", TextKernel.foldCase("MixedCASEÉЖß"));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000; i++) {
+            String text = randomText(random, LETTERS, random.nextInt(20));
+            assertEquals(scalarFoldCase(text), TextKernel.foldCase(text));
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return text.toString();
+    }
+
+    private static int scalarCharValue(String text) {
+        int result = 0;
+        for (char c : text.toCharArray()) {
+            if (!Character.isLetter(c)) throw new InvalidRequestException("Invalid character " + c + " on text: " + text);
+            result += Character.compare(Character.toLowerCase(c), 'a') + 1;
+        }
+        return result;
+    }
+
+    private static boolean scalarIsCloser(String text, String lhs, String rhs) {
+        int[] lhsDist = scalarDist(text, lhs);
+        int[] rhsDist = scalarDist(text, rhs);
+        for (int i = 0; i < Math.min(lhsDist.length, rhsDist.length); i++) {
+            if (lhsDist[i] != rhsDist[i]) return lhsDist[i] < rhsDist[i];
+        }
+        return false;
+    }
+
+    private static int[] scalarDist(String lhs, String rhs) {
+        int[] result = new int[Math.min(lhs.length(), rhs.length())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.abs(Character.toLowerCase(lhs.charAt(i)) - Character.toLowerCase(rhs.charAt(i)));
+        }
+        return result;
+    }
+
+    private static String scalarFoldCase(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) chars[i] = Character.toLowerCase(text.charAt(i));
+        return new String(chars);
+    }
+}
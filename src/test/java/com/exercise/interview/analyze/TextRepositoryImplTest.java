@@ -0,0 +1,126 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TextRepositoryImplTest {
+    @Mock
+    TextStore textStore;
+
+    private TextRepositoryImpl repository(TextIndex textIndex) {
+        return new TextRepositoryImpl(textStore, null, textIndex);
+    }
+
+    @Test
+    void testEpochIncreasedByNewTexts() {
+        when(textStore.write(any())).thenReturn(Future.succeededFuture());
+        when(textStore.writeAll(any())).thenReturn(Future.succeededFuture());
+        TextRepositoryImpl repository = repository(new HeapTextIndex());
+
+        repository.saveText(TextCache.of("word", 60));
+        assertEquals(1, repository.epoch());
+
+        repository.saveText(TextCache.of("WORD", 60));
+        repository.saveTexts(List.of(TextCache.of("Word", 60), TextCache.of("other", 65), TextCache.of("b", 2)));
+        assertEquals(3, repository.epoch());
+    }
+
+    @Test
+    void testEpochKeptWhenSaveFails() {
+        when(textStore.write(any())).thenReturn(Future.failedFuture(new WriteQueueFullException("full")));
+        TextRepositoryImpl repository = repository(new HeapTextIndex());
+
+        repository.saveText(TextCache.of("word", 60));
+        assertEquals(0, repository.epoch());
+    }
+
+    @Test
+    void testRecentTextsAddedSinceEpoch() {
+        TextRepositoryImpl repository = repository(new HeapTextIndex());
+        repository.applyChanges(List.of(TextCache.of("word", 60), TextCache.of("other", 65)));
+        assertTrue(repository.anyAdded(0, 2, t -> t.getText().equals("word")));
+        assertFalse(repository.anyAdded(1, 2, t -> t.getText().equals("word")));
+
+        for (int i = 1; i <= TextRepositoryImpl.RECENT_TEXTS; i++) {
+            repository.applyChanges(List.of(TextCache.of("a".repeat(i), i)));
+        }
+        long epoch = repository.epoch();
+        assertFalse(repository.anyAdded(epoch - TextRepositoryImpl.RECENT_TEXTS, epoch, t -> false));
+        assertTrue(repository.anyAdded(epoch - TextRepositoryImpl.RECENT_TEXTS - 1, epoch, t -> false));
+    }
+
+    @Test
+    void testConcurrentSavesCoalesced() {
+        Promise<Void> write = Promise.promise();
+        when(textStore.write(any())).thenReturn(write.future());
+        when(textStore.writeAll(any())).thenReturn(Future.succeededFuture());
+        TextRepositoryImpl repository = repository(new HeapTextIndex());
+
+        Future<Void> first = repository.saveText(TextCache.of("word", 60));
+        Future<Void> second = repository.saveText(TextCache.of("WORD", 60));
+        Future<Void> batch = repository.saveTexts(List.of(TextCache.of("Word", 60), TextCache.of("other", 65)));
+
+        assertFalse(first.isComplete() || second.isComplete() || batch.isComplete());
+        verify(textStore, times(1)).write(any());
+        verify(textStore).writeAll(List.of(TextCache.of("other", 65)));
+        assertEquals(2, repository.coalescedSaves());
+
+        write.complete();
+        assertTrue(first.succeeded() && second.succeeded() && batch.succeeded());
+        assertEquals(2, repository.epoch());
+    }
+
+    @Test
+    void testImportCachesBatchesWrittenBeforeAFailure() {
+        when(textStore.writeAll(any())).thenReturn(Future.succeededFuture())
+                .thenReturn(Future.failedFuture(new WriteQueueFullException("full")));
+        TextIndex textIndex = new HeapTextIndex();
+        TextRepositoryImpl repository = repository(textIndex);
+
+        Future<Integer> imported = repository.importTexts(List.of(TextCache.of("a", 1), TextCache.of("b", 2),
+                TextCache.of("c", 3), TextCache.of("d", 4)), 2);
+
+        assertTrue(imported.failed());
+        assertTrue(textIndex.contains("a") && textIndex.contains("b"));
+        assertFalse(textIndex.contains("c") || textIndex.contains("d"));
+        verify(textStore).writeAll(List.of(TextCache.of("c", 3), TextCache.of("d", 4)));
+    }
+
+    @Test
+    void testSavesDuringImportJoinTheirBatch() {
+        Promise<Void> first = Promise.promise();
+        Promise<Void> second = Promise.promise();
+        when(textStore.writeAll(any())).thenReturn(first.future()).thenReturn(second.future());
+        TextRepositoryImpl repository = repository(new HeapTextIndex());
+
+        Future<Integer> imported = repository.importTexts(List.of(TextCache.of("a", 1), TextCache.of("b", 2),
+                TextCache.of("c", 3)), 2);
+        Future<Void> saveB = repository.saveText(TextCache.of("B", 2));
+        Future<Void> saveC = repository.saveText(TextCache.of("c", 3));
+
+        first.complete();
+        assertTrue(saveB.succeeded());
+        assertFalse(saveC.isComplete());
+        second.complete();
+        assertTrue(saveC.succeeded());
+        assertEquals(3, imported.result());
+        verify(textStore, never()).write(any());
+        assertEquals(2, repository.coalescedSaves());
+    }
+}
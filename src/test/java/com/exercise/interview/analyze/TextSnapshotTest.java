@@ -0,0 +1,73 @@
+package com.exercise.interview.analyze;
+
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+class TextSnapshotTest {
+    @TempDir
+    Path dir;
+
+    private static TextIndex index(TextCache... texts) {
+        TextIndex index = new HeapTextIndex();
+        for (TextCache text : texts) index.add(text);
+        return index;
+    }
+
+    @Test
+    void testSaveAndLoad(Vertx vertx, VertxTestContext testContext) {
+        TextSnapshot snapshot = new TextSnapshot(vertx, dir.resolve("texts.snapshot"));
+        List<TextCache> loaded = new ArrayList<>();
+
+        snapshot.save(42, index(TextCache.of("c", 3), TextCache.of("g", 7), TextCache.of("Ábc", 113)))
+                .flatMap(v -> snapshot.load(loaded::add))
+                .onComplete(testContext.succeeding(watermark -> testContext.verify(() -> {
+                    assertEquals(42, watermark);
+                    assertEquals(3, loaded.size());
+                    assertTrue(loaded.containsAll(List.of(TextCache.of("c", 3), TextCache.of("g", 7),
+                            TextCache.of("Ábc", 113))));
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testMissingSnapshot(Vertx vertx, VertxTestContext testContext) {
+        new TextSnapshot(vertx, dir.resolve("missing.snapshot"))
+                .load(t -> testContext.failNow("Unexpected text " + t))
+                .onComplete(testContext.succeeding(watermark -> testContext.verify(() -> {
+                    assertEquals(0, watermark);
+                    testContext.completeNow();
+                })));
+    }
+
+    @Test
+    void testCorruptedSnapshot(Vertx vertx, VertxTestContext testContext) throws IOException {
+        Path path = dir.resolve("texts.snapshot");
+        TextSnapshot snapshot = new TextSnapshot(vertx, path);
+
+        snapshot.save(1, index(TextCache.of("c", 3)))
+                .compose(v -> vertx.fileSystem().readFile(path.toString()))
+                .compose(b -> {
+                    b.setByte(20, (byte) (b.getByte(20) + 1));
+                    return vertx.fileSystem().writeFile(path.toString(), b);
+                })
+                .compose(v -> snapshot.load(t -> {}))
+                .onComplete(testContext.failing(t -> testContext.verify(() -> {
+                    assertTrue(Files.exists(path));
+                    testContext.completeNow();
+                })));
+    }
+}
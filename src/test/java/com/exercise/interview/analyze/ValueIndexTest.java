@@ -0,0 +1,96 @@
+package com.exercise.interview.analyze;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class ValueIndexTest {
+    @Test
+    void testEmpty() {
+        ValueIndex valueIndex = new ValueIndex();
+        assertTrue(valueIndex.isEmpty());
+        assertEquals(ValueIndex.NONE, valueIndex.closest(10));
+        assertEquals(ValueIndex.NONE, valueIndex.floor(10));
+        assertEquals(ValueIndex.NONE, valueIndex.ceiling(10));
+    }
+
+    @ParameterizedTest
+    @MethodSource("values")
+    void testClosest(List<Integer> values, int value, int closest) {
+        ValueIndex valueIndex = new ValueIndex();
+        values.forEach(valueIndex::add);
+        assertFalse(valueIndex.isEmpty());
+        assertEquals(closest, valueIndex.closest(value));
+    }
+
+    static Stream<Arguments> values() {
+        return Stream.of(
+            arguments(List.of(3, 8), 8, 8),
+            arguments(List.of(3, 8), 6, 8),
+            arguments(List.of(3, 8), 10, 8),
+            arguments(List.of(3, 8), 5, 3),
+            arguments(List.of(3, 8), 1, 3),
+            arguments(List.of(3, 7), 5, 7),
+            arguments(List.of(7), 7, 7),
+            arguments(List.of(7), 1_000_000, 7),
+            arguments(List.of(1, 100_000), 50_000, 1),
+            arguments(List.of(1, 100_000), 50_001, 100_000),
+            arguments(List.of(63, 64, 4095, 4096), 2000, 64),
+            arguments(List.of(63, 4097), 64, 63),
+            arguments(List.of(63, 64, 4095, 4096), 3000, 4095),
+            arguments(List.of(5, Integer.MAX_VALUE), Integer.MAX_VALUE - 1, Integer.MAX_VALUE),
+            arguments(List.of(-20, 5), 0, 5),
+            arguments(List.of(-20, 5), -10, -20)
+        );
+    }
+
+    @Test
+    void testClosestLimitSameAsFullScan() {
+        Random random = new Random(7);
+        ValueIndex valueIndex = new ValueIndex();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int value = random.nextInt(20_000);
+            if (!values.contains(value)) values.add(value);
+            valueIndex.add(value);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int value = random.nextInt(22_000) - 1_000;
+            int limit = random.nextInt(40);
+            int[] expected = values.stream()
+                    .sorted(Comparator.<Integer>comparingInt(v -> Math.abs(v - value))
+                            .thenComparing(Comparator.reverseOrder()))
+                    .limit(limit)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, valueIndex.closest(value, limit), "value " + value);
+        }
+    }
+
+    @Test
+    void testFloorAndCeiling() {
+        ValueIndex valueIndex = new ValueIndex();
+        List.of(10, 70, 9000, 300_000).forEach(valueIndex::add);
+        assertEquals(70, valueIndex.floor(8999));
+        assertEquals(9000, valueIndex.ceiling(71));
+        assertEquals(300_000, valueIndex.floor(Integer.MAX_VALUE));
+        assertEquals(ValueIndex.NONE, valueIndex.ceiling(300_001));
+        assertEquals(ValueIndex.NONE, valueIndex.floor(9));
+        assertTrue(valueIndex.contains(9000));
+        assertFalse(valueIndex.contains(9001));
+    }
+}